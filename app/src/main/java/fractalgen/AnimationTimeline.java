@@ -0,0 +1,190 @@
+package fractalgen;
+
+/**
+ * Immutable, looping sequence of keyframes for animating the shape of the
+ * fractal. Between two keyframes the radius ratio and children angle are
+ * interpolated linearly; after the last keyframe the timeline starts over.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public final class AnimationTimeline {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Keyframes in order of time; the first is at time 0 */
+    private final Keyframe[] keyframes;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for AnimationTimeline class. Throws
+     * IllegalArgumentException if there are fewer than two keyframes, the
+     * first is not at time 0 or the times are not increasing.
+     *
+     * @param   keyframes   keyframes in order of time
+     */
+    public AnimationTimeline(Keyframe... keyframes) {
+        if (keyframes.length < 2) {
+            throw new IllegalArgumentException("keyframes: " + keyframes.length);
+        }
+        if (keyframes[0].getTime() != 0) {
+            throw new IllegalArgumentException("first time: " 
+                + keyframes[0].getTime());
+        }
+        for (int i = 1; i < keyframes.length; i++) {
+            if (!(keyframes[i].getTime() > keyframes[i - 1].getTime())) {
+                throw new IllegalArgumentException("time: " 
+                    + keyframes[i].getTime());
+            }
+        }
+        this.keyframes = keyframes.clone();
+    }
+
+    /**
+     * Creates a timeline in which the cactus grows and sways: the radius
+     * ratio swells from 40 to 60 while the children angle swings from 30
+     * to 60 degrees and back, every 4 seconds.
+     *
+     * @return      timeline of the growing and swaying cactus
+     */
+    public static AnimationTimeline growAndSway() {
+        return new AnimationTimeline(
+            new Keyframe(0, 40, 30),
+            new Keyframe(2, 60, 60),
+            new Keyframe(4, 40, 30));
+    }
+
+    /**
+     * Retrieves the time after which the timeline starts over
+     *
+     * @return      time of the last keyframe, in seconds
+     */
+    public double getDuration() {
+        return keyframes[keyframes.length - 1].getTime();
+    }
+
+    /**
+     * Retrieves the radius ratio at a point in time
+     *
+     * @param   time    time since the start, in seconds
+     * @return          interpolated ratio of child to parent radius
+     */
+    public int radiusRatioAt(double time) {
+        int i = segmentAt(time);
+        double t = fractionAt(time, i);
+        return (int) Math.round(keyframes[i].getRadiusRatio() * (1 - t)
+            + keyframes[i + 1].getRadiusRatio() * t);
+    }
+
+    /**
+     * Retrieves the children angle at a point in time
+     *
+     * @param   time    time since the start, in seconds
+     * @return          interpolated angle from parent to child Circles, in
+     *                  degrees
+     */
+    public double childrenAngleAt(double time) {
+        int i = segmentAt(time);
+        double t = fractionAt(time, i);
+        return keyframes[i].getChildrenAngle() * (1 - t)
+            + keyframes[i + 1].getChildrenAngle() * t;
+    }
+
+    /**
+     * Finds the keyframe starting the segment that contains a point in time
+     *
+     * @param   time    time since the start, in seconds
+     * @return          index of the keyframe before the time
+     */
+    private int segmentAt(double time) {
+        double looped = loop(time);
+        int i = 0;
+        while (i < keyframes.length - 2 && keyframes[i + 1].getTime() <= looped) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Computes how far into a segment a point in time is
+     *
+     * @param   time    time since the start, in seconds
+     * @param   segment index of the keyframe starting the segment
+     * @return          0 at the segment's first keyframe, 1 at its last
+     */
+    private double fractionAt(double time, int segment) {
+        double start = keyframes[segment].getTime();
+        double end = keyframes[segment + 1].getTime();
+        return Math.min(1, (loop(time) - start) / (end - start));
+    }
+
+    /**
+     * Maps a point in time into the first repetition of the timeline
+     *
+     * @param   time    time since the start, in seconds
+     * @return          time within the timeline, in seconds
+     */
+    private double loop(double time) {
+        double looped = time % getDuration();
+        return looped < 0 ? looped + getDuration() : looped;
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Shape of the fractal at one point of a timeline
+     */
+    public static final class Keyframe {
+        /** Time of this keyframe, in seconds */
+        private final double time;
+        /** Ratio of child to parent radius */
+        private final int radiusRatio;
+        /** Angle from parent to child Circles, in degrees */
+        private final double childrenAngle;
+
+        /**
+         * Constructor for Keyframe class
+         *
+         * @param   time            time of this keyframe, in seconds
+         * @param   radiusRatio     ratio of child to parent radius
+         * @param   childrenAngle   angle from parent to child Circles, in
+         *                          degrees
+         */
+        public Keyframe(double time, int radiusRatio, double childrenAngle) {
+            this.time = time;
+            this.radiusRatio = radiusRatio;
+            this.childrenAngle = childrenAngle;
+        }
+
+        /**
+         * Retrieves the time of this keyframe
+         *
+         * @return      time in seconds
+         */
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * Retrieves the ratio of child to parent radius
+         *
+         * @return      ratio of child to parent radius
+         */
+        public int getRadiusRatio() {
+            return radiusRatio;
+        }
+
+        /**
+         * Retrieves the angle from parent to child Circles
+         *
+         * @return      angle in degrees
+         */
+        public double getChildrenAngle() {
+            return childrenAngle;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package fractalgen;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays an AnimationTimeline on a dedicated thread at a target frame rate.
+ * Frames are scheduled on a fixed grid of deadlines; a frame that cannot
+ * start before the next deadline is dropped and the animation skips ahead,
+ * so it stays in step with the clock instead of slowing down.
+ *
+ * The shape comes from the timeline, the depth and colors from the
+ * Subject's current parameters. Each frame is generated into the same
+ * CircleBuffer and drawn into one of two reused images, so frames after
+ * the first few allocate nothing.
+ *
+ * If drawing a frame fails, the animation stops and the failure is
+ * handed to the animation thread's uncaught exception handler; the
+ * animation can then be started again.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class Animator {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Default target frame rate, in frames per second */
+    public static final int DEFAULT_FPS = 60;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Object providing the fractal pattern data */
+    private final Subject subject;
+    /** Component to repaint when a frame is completed */
+    private final Component target;
+    /** Keyframes being played */
+    private final AnimationTimeline timeline;
+    /** Time between two frame deadlines, in nanoseconds */
+    private final long periodNanos;
+    /** Guards swapping and painting of the front buffer */
+    private final Object frameLock;
+    /** Circles of the frame being drawn; reused for every frame */
+    private final CircleBuffer fractal;
+    /** Draws each frame on the animation thread */
+    private final TileRasterizer rasterizer;
+    /** View of the fractal to animate */
+    private volatile Viewport viewport;
+    /** Background RGB value of the target when the animation started */
+    private volatile int background;
+    /** Thread playing the animation; null when stopped; guarded by this
+     *  Animator */
+    private Thread thread;
+    /** Latest completed frame; null until the first frame completes */
+    private BufferedImage front;
+    /** Frame currently being drawn into; animation thread only */
+    private BufferedImage back;
+    /** Parameters the palette was made for; animation thread only */
+    private FractalParameters paletteParameters;
+    /** Colors of the levels of the fractal; animation thread only */
+    private Palette palette;
+    /** Number of frames shown since the animation started */
+    private volatile long framesShown;
+    /** Number of frames dropped since the animation started */
+    private volatile long framesDropped;
+    /** Time the last frame took to generate and draw, in nanoseconds */
+    private volatile long lastFrameNanos;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an Animator playing at the default frame rate.
+     *
+     * @param   subject     object providing the fractal pattern data
+     * @param   target      component to repaint when a frame is completed
+     * @param   timeline    keyframes to play
+     */
+    public Animator(Subject subject, Component target, 
+        AnimationTimeline timeline) {
+        this(subject, target, timeline, DEFAULT_FPS);
+    }
+
+    /**
+     * Constructor for Animator class. Throws IllegalArgumentException if
+     * fps is not greater than 0.
+     *
+     * @param   subject     object providing the fractal pattern data
+     * @param   target      component to repaint when a frame is completed
+     * @param   timeline    keyframes to play
+     * @param   fps         target frame rate, in frames per second
+     */
+    public Animator(Subject subject, Component target, 
+        AnimationTimeline timeline, int fps) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("fps: " + fps);
+        }
+        this.subject = subject;
+        this.target = target;
+        this.timeline = timeline;
+        periodNanos = TimeUnit.SECONDS.toNanos(1) / fps;
+        frameLock = new Object();
+        fractal = new CircleBuffer();
+        rasterizer = new TileRasterizer();
+    }
+
+    /**
+     * Starts playing the timeline from its beginning. Does nothing if the
+     * animation is already playing. Must be called on the event dispatch
+     * thread, since it reads the target's background.
+     *
+     * @param   view    view of the fractal to animate
+     */
+    public synchronized void start(Viewport view) {
+        if (thread != null) {
+            return;
+        }
+        viewport = view;
+        background = target.getBackground().getRGB();
+        framesShown = 0;
+        framesDropped = 0;
+        thread = new Thread(this::play, "fractal-animation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops playing and waits for the animation thread to finish
+     */
+    public void stop() {
+        Thread playing;
+        synchronized (this) {
+            playing = thread;
+        }
+        if (playing == null) {
+            return;
+        }
+        // the animation thread clears the field as it exits, so the lock
+        // is not held while waiting for it
+        playing.interrupt();
+        try {
+            playing.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the animation is playing
+     *
+     * @return      true if the animation is playing, false otherwise
+     */
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Changes the view of the fractal; takes effect from the next frame
+     *
+     * @param   view    view of the fractal to animate
+     */
+    public void setViewport(Viewport view) {
+        viewport = view;
+    }
+
+    /**
+     * Copies the latest completed frame onto the provided graphical
+     * component. Draws nothing if no frame has completed yet.
+     *
+     * @param   g   graphics object to draw the frame on
+     */
+    public void paintFrame(Graphics g) {
+        synchronized (frameLock) {
+            if (front != null) {
+                g.drawImage(front, 0, 0, null);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the target frame rate
+     *
+     * @return      frames per second
+     */
+    public double getTargetFps() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / periodNanos;
+    }
+
+    /**
+     * Retrieves the number of frames shown since the animation started
+     *
+     * @return      number of frames shown
+     */
+    public long getFramesShown() {
+        return framesShown;
+    }
+
+    /**
+     * Retrieves the number of frames skipped since the animation started
+     * because the previous frame missed its deadline
+     *
+     * @return      number of frames dropped
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * Retrieves the time the last frame took to generate and draw
+     *
+     * @return      frame time in milliseconds
+     */
+    public double getLastFrameMillis() {
+        return lastFrameNanos / 1e6;
+    }
+
+    /**
+     * Plays the animation until the thread is interrupted or a frame
+     * fails. Frame n is due at start + n * period and shows the timeline
+     * at that time.
+     */
+    private void play() {
+        long start = System.nanoTime();
+        long frame = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long late = System.nanoTime() - (start + frame * periodNanos);
+                if (late >= periodNanos) {
+                    // skip the frames whose deadlines have already passed
+                    long missed = late / periodNanos;
+                    framesDropped += missed;
+                    frame += missed;
+                }
+                long frameStart = System.nanoTime();
+                renderFrame((double) frame * periodNanos / 1e9);
+                lastFrameNanos = System.nanoTime() - frameStart;
+                framesShown++;
+                frame++;
+
+                long wait;
+                while ((wait = start + frame * periodNanos - System.nanoTime()) > 0
+                    && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        } catch (CancellationException e) {
+            // the animation was stopped while generating
+        } catch (RuntimeException | Error e) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, 
+                e);
+        } finally {
+            synchronized (this) {
+                if (thread == Thread.currentThread()) {
+                    thread = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates and draws the frame showing the timeline at a point in
+     * time, then publishes it as the front buffer
+     *
+     * @param   time    time since the start of the animation, in seconds
+     */
+    private void renderFrame(double time) {
+        FractalParameters parameters = subject.getParameters();
+        if (parameters != paletteParameters) {
+            palette = Palette.of(parameters);
+            paletteParameters = parameters;
+        }
+        Viewport view = viewport;
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (back == null || back.getWidth() != width 
+            || back.getHeight() != height) {
+            back = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        subject.generateFrame(parameters.getRecursionDepth(), 
+            timeline.radiusRatioAt(time), 
+            Math.toRadians(timeline.childrenAngleAt(time)), view, fractal);
+        // Java2D allocates for every oval it fills, so frames are drawn
+        // straight into the pixels
+        int[] pixels = ((DataBufferInt) back.getRaster().getDataBuffer())
+            .getData();
+        Arrays.fill(pixels, background);
+        rasterizer.drawSequential(fractal, palette, back, 0, 0);
+
+        synchronized (frameLock) {
+            BufferedImage completed = back;
+            back = front;
+            front = completed;
+        }
+        target.repaint();
+    }
+}
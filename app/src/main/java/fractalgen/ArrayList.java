@@ -1,18 +1,33 @@
+package fractalgen;
+
 import java.io.Serializable;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is a working version of the author's code for Array List
  *
+ * Iterators and spliterators are fail-fast: they throw
+ * ConcurrentModificationException once the list is structurally modified
+ * other than through the iterator itself. A spliterator splits the list
+ * into halves without copying it, so a parallel stream partitions the
+ * elements across cores.
+ *
  * @param   <E>     generic data value
  */
-public class ArrayList<E> implements Serializable {
+public class ArrayList<E> implements Iterable<E>, Serializable {
     /** list of values */
     private E[] elementData;
     /** current number of elements in the list */
     private int size;
+    /** number of structural modifications, checked by iterators */
+    private transient int modCount;
     /** default array capacity */
     public static final int DEFAULT_CAPACITY = 50;
 
@@ -132,6 +147,7 @@ public class ArrayList<E> implements Serializable {
         elementData[size] = value;
         // update size of array list
         size++;
+        modCount++;
     }
 
     /**
@@ -150,14 +166,14 @@ public class ArrayList<E> implements Serializable {
         // of this array
         ensureCapacity(size + 1);
 
-        // move values of each array element by one to the right of target index
-        for (int i = size; i >= index + 1; i--) {
-            elementData[i] = elementData[i - 1];
-        }
+        // move values of the array elements from target index by one to the right
+        System.arraycopy(elementData, index, elementData, index + 1,
+            size - index);
         // map new value at designated index
         elementData[index] = value;
         // update size of array list
         size++;
+        modCount++;
     }
 
     /**
@@ -170,14 +186,39 @@ public class ArrayList<E> implements Serializable {
     public void remove(int index) {
         // checks if index is valid, otherwise throw IndexOutOfBoundsException
         checkIndex(index);
-        // move values of each array element following target index to the
+        // move values of the array elements following target index to the
         // left by one
-        for (int i = index; i < size - 1; i++) {
-            elementData[i] = elementData[i + 1];
-        }
+        System.arraycopy(elementData, index + 1, elementData, index,
+            size - index - 1);
         elementData[size - 1] = null;
         // update size of array list
         size--;
+        modCount++;
+    }
+
+    /**
+     * Removes the array list elements from fromIndex, inclusive, to toIndex,
+     * exclusive, thereby shifting the subsequent elements in the array list
+     * to the left. Throws IndexOutOfBoundsException if the range is not
+     * within the array list.
+     *
+     * @param   fromIndex   position of the first element to remove
+     * @param   toIndex     position after the last element to remove
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("range: " + fromIndex + ", "
+                + toIndex);
+        }
+        // move the elements following the range over it in one copy
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+            size - toIndex);
+        int newSize = size - (toIndex - fromIndex);
+        // release the vacated tail of the array
+        Arrays.fill(elementData, newSize, size, null);
+        // update size of array list
+        size = newSize;
+        modCount++;
     }
 
     /**
@@ -197,12 +238,11 @@ public class ArrayList<E> implements Serializable {
      * Deletes all items in the array list.
      */
     public void clear() {
-        // goes through each array element in linear fashion and set to null
-        for (int i = 0; i < size; i++) {
-            elementData[i] = null;
-        }
+        // release every array element that held a value
+        Arrays.fill(elementData, 0, size, null);
         // update array list size
         size = 0;
+        modCount++;
     }
 
     /**
@@ -211,12 +251,41 @@ public class ArrayList<E> implements Serializable {
      * @param   other   a given array list
      */
     public void addAll(ArrayList<E> other) {
+        addAll(size, other);
+    }
+
+    /**
+     * Inserts the values of a given array list at a designated index,
+     * thereby shifting the subsequent elements in this array list to the
+     * right. The list may be added to itself.
+     *
+     * @param   index   position in array list to insert the values
+     * @param   other   a given array list
+     */
+    public void addAll(int index, ArrayList<E> other) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        // read the other list's size first, in case it is this list
+        int count = other.size;
         // if new array list capacity is greater than array length, at least double capacity
-        ensureCapacity(size + other.size);
-        // go through each element in new array and append to this array
-        for (int i = 0; i < other.size; i++) {
-            add(other.elementData[i]);
+        ensureCapacity(size + count);
+        E[] source = other.elementData;
+        // move the elements from target index to make room, then copy the
+        // new values in; a list added to itself is copied from its
+        // original positions
+        System.arraycopy(elementData, index, elementData, index + count,
+            size - index);
+        if (source == elementData) {
+            System.arraycopy(elementData, 0, elementData, index, index);
+            System.arraycopy(elementData, index + count, elementData,
+                2 * index, count - index);
+        } else {
+            System.arraycopy(source, 0, elementData, index, count);
         }
+        // update size of array list
+        size += count;
+        modCount++;
     }
 
     /**
@@ -224,10 +293,41 @@ public class ArrayList<E> implements Serializable {
      *
      * @return  an iterator object for this array list.
      */
+    @Override
     public Iterator<E> iterator() {
         return new ArrayListIterator();
     }
 
+    /**
+     * Returns a spliterator over the elements of the array list. It binds
+     * to the list's size on first use and splits by halving its range.
+     *
+     * @return  a spliterator for this array list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ArrayListSpliterator(0, -1, 0);
+    }
+
+    /**
+     * Returns a sequential stream of the elements of the array list.
+     *
+     * @return  a stream over this array list
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream of the elements of the array list. The
+     * list is partitioned in place, without copying it.
+     *
+     * @return  a parallel stream over this array list
+     */
+    public Stream<E> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * Ensures that the underlying array has the given capacity; if not,
      * the size is doubled (or more if a given capacity is even larger).
@@ -248,6 +348,17 @@ public class ArrayList<E> implements Serializable {
         }
     }
 
+    /**
+     * Shrinks the underlying array to the current number of elements,
+     * releasing unused capacity once a list is fully built.
+     */
+    public void trimToSize() {
+        if (size < elementData.length) {
+            elementData = Arrays.copyOf(elementData, size);
+            modCount++;
+        }
+    }
+
     /**
      * Throws an IndexOutOfBoundsException if the given index is
      * not a legal index of this array list.
@@ -269,6 +380,8 @@ public class ArrayList<E> implements Serializable {
         private int position;
         /** whether it's okay to remove now */
         private boolean removeOK;
+        /** modification count the list is expected to have */
+        private int expectedModCount;
 
         /**
          * Constructor; sets up an iterator for the given array list.
@@ -276,6 +389,7 @@ public class ArrayList<E> implements Serializable {
         public ArrayListIterator() {
             position = 0;
             removeOK = false;
+            expectedModCount = modCount;
         }
 
         /**
@@ -294,6 +408,7 @@ public class ArrayList<E> implements Serializable {
          * @return      the next element in array list
          */
         public E next() {
+            checkForComodification();
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
@@ -315,13 +430,146 @@ public class ArrayList<E> implements Serializable {
             if (!removeOK) {
                 throw new IllegalStateException();
             }
+            checkForComodification();
             // remove specified element
             ArrayList.this.remove(position - 1);
+            // the removal was made through this iterator
+            expectedModCount = modCount;
             // update current position
             position--;
             // don't allow another removal until next() method
             // called again
             removeOK = false;
         }
+
+        /**
+         * Throws ConcurrentModificationException if the array list was
+         * structurally modified other than through this iterator.
+         */
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Splits the elements of an array list into ranges that are traversed
+     * independently, without copying the array.
+     */
+    private class ArrayListSpliterator implements Spliterator<E> {
+        /** current position within the list */
+        private int index;
+        /** position after the last element; -1 until first use */
+        private int fence;
+        /** modification count the list is expected to have */
+        private int expectedModCount;
+
+        /**
+         * Constructor; sets up a spliterator over a range of the list.
+         *
+         * @param   origin              position of the first element
+         * @param   fence               position after the last element; -1
+         *                              to bind to the list's size on first
+         *                              use
+         * @param   expectedModCount    modification count of the list when
+         *                              the range was bound
+         */
+        private ArrayListSpliterator(int origin, int fence,
+            int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        /**
+         * Retrieves the end of the range, binding it to the list's size on
+         * first use so elements added before traversal are included.
+         *
+         * @return      position after the last element
+         */
+        private int getFence() {
+            if (fence < 0) {
+                expectedModCount = modCount;
+                fence = size;
+            }
+            return fence;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Spliterator<E> trySplit() {
+            int high = getFence();
+            int middle = (index + high) >>> 1;
+            if (index >= middle) {
+                return null;
+            }
+            // hand the lower half to the new spliterator
+            Spliterator<E> prefix = new ArrayListSpliterator(index, middle,
+                expectedModCount);
+            index = middle;
+            return prefix;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            int high = getFence();
+            if (index >= high) {
+                return false;
+            }
+            E value = elementData[index++];
+            action.accept(value);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            int high = getFence();
+            E[] values = elementData;
+            int i = index;
+            // consume the whole range before checking once for
+            // modification, as the loop is the hot path of a stream
+            index = high;
+            for (; i < high; i++) {
+                action.accept(values[i]);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED
+                | Spliterator.SUBSIZED;
+        }
     }
 }
@@ -0,0 +1,164 @@
+package fractalgen;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Observer that delivers updates to another Observer on an Executor, so a
+ * slow Observer does not hold up the Subject or the other Observers.
+ *
+ * Updates are delivered in order, one at a time. Pending updates wait in
+ * a queue of bounded capacity; once it is full, each new update drops the
+ * oldest pending one. Updates carry no data, so only the number of
+ * pending updates is kept: a full queue stays full and counts a drop.
+ * With a capacity of 1, a burst of updates is coalesced into one update
+ * delivered after the burst's last change.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class AsyncObserver implements Observer {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Observer the updates are delivered to */
+    private final Observer delegate;
+    /** Runs the deliveries */
+    private final Executor executor;
+    /** Maximum number of pending updates */
+    private final int capacity;
+    /** Number of updates waiting for delivery */
+    private final AtomicInteger pending;
+    /** Whether a delivery task is scheduled or running */
+    private final AtomicBoolean scheduled;
+    /** Number of updates dropped because the queue was full */
+    private final AtomicLong dropped;
+    /** Delivers pending updates until there are none */
+    private final Runnable drain;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up asynchronous delivery to an Observer. Throws
+     * IllegalArgumentException if capacity is smaller than 1.
+     *
+     * @param   delegate    Observer to deliver updates to
+     * @param   executor    runs the deliveries
+     * @param   capacity    maximum number of pending updates
+     */
+    public AsyncObserver(Observer delegate, Executor executor, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.capacity = capacity;
+        pending = new AtomicInteger();
+        scheduled = new AtomicBoolean();
+        dropped = new AtomicLong();
+        drain = this::drain;
+    }
+
+    /**
+     * Queues an update for delivery and returns without waiting for it.
+     * If the Executor rejects the delivery, the update stays pending
+     * until the next update.
+     */
+    @Override
+    public void update() {
+        int count;
+        do {
+            count = pending.get();
+            if (count == capacity) {
+                // the new update takes the place of the oldest
+                dropped.incrementAndGet();
+                break;
+            }
+        } while (!pending.compareAndSet(count, count + 1));
+        schedule();
+    }
+
+    /**
+     * Retrieves the Observer the updates are delivered to
+     *
+     * @return      wrapped Observer
+     */
+    public Observer getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Retrieves the number of updates waiting for delivery
+     *
+     * @return      number of pending updates
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Retrieves the number of updates dropped because the queue was full
+     *
+     * @return      number of dropped updates
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Schedules a delivery task unless one is already scheduled or running
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Delivers pending updates until there are none. An exception thrown
+     * by the Observer is passed to the thread's uncaught exception
+     * handler and does not stop later deliveries.
+     */
+    private void drain() {
+        do {
+            while (takePending()) {
+                try {
+                    delegate.update();
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(
+                        thread, e);
+                }
+            }
+            scheduled.set(false);
+            // an update arriving after the last take but before the flag
+            // was cleared saw a running task and did not schedule one
+        } while (pending.get() > 0 && scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * Removes one pending update, if there is one
+     *
+     * @return      true if an update was removed, false if none was
+     *              pending
+     */
+    private boolean takePending() {
+        int count;
+        do {
+            count = pending.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!pending.compareAndSet(count, count - 1));
+        return true;
+    }
+}
@@ -0,0 +1,403 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a sweep of fractal patterns to PNG or SVG files without a
+ * display. Every combination of the requested depths, radius ratios, angles
+ * and colors is rendered on a bounded pool of worker threads. A pattern
+ * that fails is reported and counted, and the sweep goes on. Workers share
+ * one FractalGenerator, so combinations that only differ in color reuse
+ * the same geometry, and each worker reuses its own image between jobs.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class BatchRenderer {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Command line usage of the batch renderer */
+    public static final String USAGE = String.join(System.lineSeparator(),
+        "usage: java fractalgen.Main --headless [options]",
+        "   or: java fractalgen.Main --open FILE.fgeo",
+        "   or: java fractalgen.Main --farm [options]",
+        "   or: java fractalgen.Main --serve [options]",
+        "  --depth FROM[:TO[:STEP]]     recursion depths (default 10)",
+        "  --ratio FROM[:TO[:STEP]]     child to parent radius ratios (default 40)",
+        "  --angle FROM[:TO[:STEP]]     children angles in degrees (default 45)",
+        "  --cactus COLOR[,COLOR...]    cactus colors, e.g. #00ff00 (default green)",
+        "  --pear COLOR[,COLOR...]      pear colors (default pink)",
+        "  --size WIDTHxHEIGHT          image size in pixels (default 550x600)",
+        "  --scale SCALE                pixels per fractal unit (default 1)",
+        "  --background COLOR           background color (default #ffffff)",
+        "  --threads N                  worker threads (default: processors)",
+        "  --budget-mb MB               memory shared by the threads' patterns;",
+        "                               larger ones are streamed (default: 1/4 heap)",
+        "  --out DIRECTORY              output directory (default .)",
+        "  --format png|svg|geometry    output format (default png); SVG and",
+        "                               geometry files hold the whole tree",
+        "  --grouped                    group SVG circles of the same color");
+    /** Number of jobs that may wait for a worker per worker thread */
+    private static final int QUEUED_JOBS_PER_THREAD = 4;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Recursion depths to render */
+    private int[] depths = {10};
+    /** Radius ratios to render */
+    private int[] ratios = {40};
+    /** Children angles to render, in degrees */
+    private double[] angles = {45};
+    /** Cactus colors to render */
+    private Color[] cactusColors = {Color.green};
+    /** Pear colors to render */
+    private Color[] pearColors = {Color.PINK};
+    /** Width of each image in pixels */
+    private int width = 550;
+    /** Height of each image in pixels */
+    private int height = 600;
+    /** Pixels per fractal unit */
+    private double scale = 1;
+    /** Background color of each image */
+    private Color background = Color.white;
+    /** Number of worker threads */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** Memory the worker threads' patterns may take; -1 for the default */
+    private long budgetBytes = -1;
+    /** Number of patterns streamed because they exceeded the budget */
+    private final AtomicInteger streamed = new AtomicInteger();
+    /** Directory the images are written to */
+    private File outputDirectory = new File(".");
+    /** Format of the written files: png, svg or geometry */
+    private String format = "png";
+    /** Whether consecutive SVG circles of the same color are grouped */
+    private boolean grouped;
+    /** Generates the fractal patterns of every job */
+    private final FractalGenerator generator = new FractalGenerator();
+    /** Draws fractal patterns into images */
+    private final TileRasterizer rasterizer = new TileRasterizer();
+    /** Image each worker thread renders into */
+    private final ThreadLocal<BufferedImage> images = ThreadLocal.withInitial(
+        () -> new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up a batch renderer from command line arguments.
+     * Throws IllegalArgumentException if an argument is not understood,
+     * if any ratio or angle of a range is outside the range the Gui
+     * accepts, or if the scale is not positive, so a bad sweep fails
+     * before its first image.
+     *
+     * @param   args    command line arguments, as described by USAGE
+     */
+    public BatchRenderer(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--headless")) {
+                continue;
+            }
+            if (option.equals("--grouped")) {
+                grouped = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--depth":
+                    depths = parseIntRange(value);
+                    for (int depth : depths) {
+                        if (depth < 0 || depth > FractalGenerator.MAX_DEPTH) {
+                            throw new IllegalArgumentException("depth: " + depth);
+                        }
+                    }
+                    break;
+                case "--ratio":
+                    ratios = parseIntRange(value);
+                    for (int ratio : ratios) {
+                        if (ratio < Gui.MIN_RADIUS_RATIO 
+                            || ratio > Gui.MAX_RADIUS_RATIO) {
+                            throw new IllegalArgumentException("ratio: " + ratio);
+                        }
+                    }
+                    break;
+                case "--angle":
+                    angles = parseDoubleRange(value);
+                    for (double angle : angles) {
+                        if (!(angle >= Gui.MIN_ANGLE 
+                            && angle <= Gui.MAX_ANGLE)) {
+                            throw new IllegalArgumentException("angle: " + angle);
+                        }
+                    }
+                    break;
+                case "--cactus":
+                    cactusColors = parseColors(value);
+                    break;
+                case "--pear":
+                    pearColors = parseColors(value);
+                    break;
+                case "--size":
+                    String[] dimensions = value.split("x");
+                    if (dimensions.length != 2) {
+                        throw new IllegalArgumentException("size: " + value);
+                    }
+                    width = Integer.parseInt(dimensions[0]);
+                    height = Integer.parseInt(dimensions[1]);
+                    if (width <= 0 || height <= 0) {
+                        throw new IllegalArgumentException("size: " + value);
+                    }
+                    break;
+                case "--scale":
+                    scale = Double.parseDouble(value);
+                    if (!(scale > 0) || Double.isInfinite(scale)) {
+                        throw new IllegalArgumentException("scale: " + value);
+                    }
+                    break;
+                case "--background":
+                    background = Color.decode(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("threads: " + value);
+                    }
+                    break;
+                case "--budget-mb":
+                    budgetBytes = Long.parseLong(value) << 20;
+                    if (budgetBytes < 0) {
+                        throw new IllegalArgumentException("budget-mb: " + value);
+                    }
+                    break;
+                case "--out":
+                    outputDirectory = new File(value);
+                    break;
+                case "--format":
+                    if (!value.equals("png") && !value.equals("svg")
+                        && !value.equals("geometry")) {
+                        throw new IllegalArgumentException("format: " + value);
+                    }
+                    format = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        // every worker thread may hold a pattern at the same time
+        generator.setMemoryBudget((budgetBytes < 0
+            ? generator.getMemoryBudget() : budgetBytes) / threads);
+        // worker threads already keep the processors busy with one image
+        // each; splitting each image as well would only add overhead
+        if (threads > 1) {
+            generator.setSplitDepth(0);
+        }
+    }
+
+    /**
+     * Renders every combination of the requested parameters and reports
+     * the throughput on standard output
+     *
+     * @return      number of images written
+     * @throws      IOException             if the output directory cannot
+     *                                      be created
+     * @throws      InterruptedException    if interrupted while waiting for
+     *                                      the workers to finish
+     */
+    public int run() throws IOException, InterruptedException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("cannot create " + outputDirectory);
+        }
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        // a full queue makes this thread render the job itself, so the
+        // sweep is never materialized ahead of the workers
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads,
+            0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(threads * QUEUED_JOBS_PER_THREAD),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        Viewport viewport = new Viewport(width, height, 0, 0, scale);
+
+        long start = System.nanoTime();
+        for (int depth : depths) {
+            for (int ratio : ratios) {
+                for (double angle : angles) {
+                    for (Color cactus : cactusColors) {
+                        for (Color pear : pearColors) {
+                            FractalParameters parameters = new FractalParameters(
+                                depth, ratio, Math.toRadians(angle), cactus, pear);
+                            workers.execute(() -> {
+                                try {
+                                    render(parameters, viewport);
+                                    written.incrementAndGet();
+                                } catch (IOException e) {
+                                    failed.incrementAndGet();
+                                    System.err.println(fileName(parameters)
+                                        + ": " + e.getMessage());
+                                } catch (RuntimeException e) {
+                                    // a job run on this thread by the
+                                    // CallerRunsPolicy must not end the sweep
+                                    failed.incrementAndGet();
+                                    System.err.println(fileName(parameters)
+                                        + ": " + e);
+                                }
+                            });
+                        }
+                    }
+                }
+            }
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d images (%d failed, %d streamed) in %.2f s: "
+            + "%.1f images/s%n", written.get(), failed.get(), streamed.get(),
+            seconds, written.get() / seconds);
+        return written.get();
+    }
+
+    /**
+     * Renders one fractal pattern into the calling worker's image and
+     * writes it to the output directory. SVG and geometry files are
+     * streamed while the tree is walked and hold every Circle, whatever
+     * the viewport. Images whose estimated footprint exceeds the memory
+     * budget are streamed to the rasterizer as well.
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   viewport    area of the fractal pattern to render
+     * @throws  IOException if the image cannot be written
+     */
+    private void render(FractalParameters parameters, Viewport viewport)
+        throws IOException {
+        if (format.equals("svg")) {
+            new SvgExporter(generator, grouped).export(parameters,
+                new File(outputDirectory, fileName(parameters)).toPath());
+            return;
+        }
+        if (format.equals("geometry")) {
+            GeometryFile.save(generator, parameters,
+                new File(outputDirectory, fileName(parameters)).toPath());
+            return;
+        }
+        BufferedImage image = images.get();
+        int[] pixels = ((DataBufferInt)
+            image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, background.getRGB());
+        int depth = parameters.getRecursionDepth();
+        Palette palette = Palette.of(parameters);
+        long estimate = generator.estimateBytes(parameters, viewport, depth);
+        if (estimate <= generator.getMemoryBudget()) {
+            CircleBuffer fractal = generator.getData(parameters, viewport,
+                depth);
+            rasterizer.draw(fractal, palette, image, 0, 0);
+        } else {
+            // drawn chunk by chunk, so the pattern is never held whole
+            generator.streamData(parameters, viewport, depth, 
+                chunk -> rasterizer.draw(chunk, palette, image, 0, 0));
+            streamed.incrementAndGet();
+            System.out.printf("%s: streamed, estimated %,d MB over the %,d MB "
+                + "budget%n", fileName(parameters), estimate >> 20,
+                generator.getMemoryBudget() >> 20);
+        }
+        ImageIO.write(image, "png", new File(outputDirectory,
+            fileName(parameters)));
+    }
+
+    /**
+     * Creates the file name of a rendered fractal pattern
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @return              file name describing the parameters
+     */
+    private String fileName(FractalParameters parameters) {
+        return String.format("cactus_d%d_r%d_a%s_%06x_%06x.%s",
+            parameters.getRecursionDepth(), parameters.getRadiusRatio(),
+            formatAngle(Math.toDegrees(parameters.getAngleIncrement())),
+            parameters.getCactusColor().getRGB() & 0xffffff,
+            parameters.getPearColor().getRGB() & 0xffffff, 
+            format.equals("geometry") ? "fgeo" : format);
+    }
+
+    /**
+     * Formats an angle without a trailing fraction when it is whole
+     *
+     * @param   degrees     angle in degrees
+     * @return              formatted angle
+     */
+    private static String formatAngle(double degrees) {
+        long rounded = Math.round(degrees);
+        return Math.abs(degrees - rounded) < 1e-9 ? Long.toString(rounded)
+            : Double.toString(degrees);
+    }
+
+    /**
+     * Parses a range of integers written as FROM[:TO[:STEP]]
+     *
+     * @param   value   range to parse
+     * @return          every integer in the range
+     */
+    private static int[] parseIntRange(String value) {
+        double[] range = parseDoubleRange(value);
+        int[] result = new int[range.length];
+        for (int i = 0; i < range.length; i++) {
+            result[i] = (int) Math.round(range[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a range of numbers written as FROM[:TO[:STEP]]. Throws
+     * IllegalArgumentException if the range is malformed.
+     *
+     * @param   value   range to parse
+     * @return          every number in the range
+     */
+    private static double[] parseDoubleRange(String value) {
+        String[] parts = value.split(":");
+        if (parts.length > 3) {
+            throw new IllegalArgumentException("range: " + value);
+        }
+        double from = Double.parseDouble(parts[0]);
+        double to = parts.length > 1 ? Double.parseDouble(parts[1]) : from;
+        double step = parts.length > 2 ? Double.parseDouble(parts[2]) : 1;
+        if (!(step > 0) || to < from) {
+            throw new IllegalArgumentException("range: " + value);
+        }
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = from + i * step;
+        }
+        return result;
+    }
+
+    /**
+     * Parses a comma-separated list of colors such as #00ff00
+     *
+     * @param   value   colors to parse
+     * @return          parsed colors
+     */
+    private static Color[] parseColors(String value) {
+        String[] parts = value.split(",");
+        Color[] result = new Color[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Color.decode(parts[i].trim());
+        }
+        return result;
+    }
+}
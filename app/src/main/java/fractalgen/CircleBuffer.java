@@ -0,0 +1,348 @@
+package fractalgen;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.util.Arrays;
+
+/**
+ * Stores the Circles of a fractal pattern in parallel primitive arrays
+ * rather than as individual objects. Each Circle is described by the
+ * coordinates of its center, its size and its level in the fractal. Colors
+ * are not stored; the level selects a color from the Palette the buffer is
+ * drawn with.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class CircleBuffer {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Default buffer capacity */
+    public static final int DEFAULT_CAPACITY = 64;
+    /** Bytes used to store a single Circle */
+    public static final int BYTES_PER_CIRCLE = 3 * Float.BYTES + Byte.BYTES;
+    /** Largest pixel coordinate of an oval passed to Graphics.fillOval;
+     *  Java2D rasterizes in float, which is exact up to 2^24 */
+    private static final double MAX_OVAL_COORDINATE = 1 << 24;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** x-coordinates of the Circle centers */
+    private float[] x;
+    /** y-coordinates of the Circle centers */
+    private float[] y;
+    /** Height and width of the Circles; height and width are equal */
+    private float[] size;
+    /** Level of each Circle in the fractal; 0 is the root */
+    private byte[] level;
+    /** Current number of Circles in the buffer */
+    private int count;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an empty buffer of default capacity.
+     */
+    public CircleBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor; sets up an empty buffer of a designated capacity.
+     * Throws IllegalArgumentException if capacity is smaller than 0.
+     *
+     * @param   capacity    designated capacity of the buffer
+     */
+    public CircleBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        x = new float[capacity];
+        y = new float[capacity];
+        size = new float[capacity];
+        level = new byte[capacity];
+        count = 0;
+    }
+
+    /**
+     * Retrieves the current number of Circles in the buffer.
+     *
+     * @return      current number of Circles
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Retrieves the number of Circles the buffer can hold without growing.
+     *
+     * @return      capacity of the buffer
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Appends a Circle to the end of this buffer.
+     *
+     * @param   cx          x-coordinate of the Circle center
+     * @param   cy          y-coordinate of the Circle center
+     * @param   diameter    height and width of the Circle
+     * @param   depth       level of the Circle in the fractal
+     */
+    public void add(float cx, float cy, float diameter, int depth) {
+        ensureCapacity(count + 1);
+        x[count] = cx;
+        y[count] = cy;
+        size[count] = diameter;
+        level[count] = (byte) depth;
+        count++;
+    }
+
+    /**
+     * Reserves room for a designated number of Circles at the end of this
+     * buffer, to be filled in with set(). Reserved Circles hold
+     * unspecified values until set.
+     *
+     * @param   n   number of Circles to reserve
+     * @return      index of the first reserved Circle
+     */
+    public int reserve(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n: " + n);
+        }
+        ensureCapacity(count + n);
+        int start = count;
+        count += n;
+        return start;
+    }
+
+    /**
+     * Replaces the Circle at an index in this buffer. Circles at
+     * different indices may be set concurrently from different threads.
+     *
+     * @param   index       index of the Circle
+     * @param   cx          x-coordinate of the Circle center
+     * @param   cy          y-coordinate of the Circle center
+     * @param   diameter    height and width of the Circle
+     * @param   depth       level of the Circle in the fractal
+     */
+    public void set(int index, float cx, float cy, float diameter, int depth) {
+        checkIndex(index);
+        x[index] = cx;
+        y[index] = cy;
+        size[index] = diameter;
+        level[index] = (byte) depth;
+    }
+
+    /**
+     * Appends a range of Circles of another buffer to the end of this
+     * buffer, in order. Throws IndexOutOfBoundsException if the range is
+     * not within the other buffer.
+     *
+     * @param   source  buffer to copy the Circles from
+     * @param   from    index of the first Circle to copy
+     * @param   to      index after the last Circle to copy
+     */
+    public void append(CircleBuffer source, int from, int to) {
+        if (from < 0 || to > source.count || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + " to: "
+                + to);
+        }
+        int n = to - from;
+        ensureCapacity(count + n);
+        System.arraycopy(source.x, from, x, count, n);
+        System.arraycopy(source.y, from, y, count, n);
+        System.arraycopy(source.size, from, size, count, n);
+        System.arraycopy(source.level, from, level, count, n);
+        count += n;
+    }
+
+    /**
+     * Retrieves the x-coordinate of the center of the Circle at an index.
+     *
+     * @param   index   index of the Circle
+     * @return          x-coordinate of the Circle center
+     */
+    public float getX(int index) {
+        checkIndex(index);
+        return x[index];
+    }
+
+    /**
+     * Retrieves the y-coordinate of the center of the Circle at an index.
+     *
+     * @param   index   index of the Circle
+     * @return          y-coordinate of the Circle center
+     */
+    public float getY(int index) {
+        checkIndex(index);
+        return y[index];
+    }
+
+    /**
+     * Retrieves the height and width of the Circle at an index.
+     *
+     * @param   index   index of the Circle
+     * @return          height and width of the Circle
+     */
+    public float getSize(int index) {
+        checkIndex(index);
+        return size[index];
+    }
+
+    /**
+     * Retrieves the level in the fractal of the Circle at an index.
+     *
+     * @param   index   index of the Circle
+     * @return          level of the Circle; 0 is the root
+     */
+    public int getLevel(int index) {
+        checkIndex(index);
+        return level[index];
+    }
+
+    /**
+     * Deletes all Circles in the buffer while keeping its capacity.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Ensures that the underlying arrays have the given capacity; if not,
+     * the capacity is doubled (or more if a given capacity is even larger).
+     *
+     * @param   capacity    new capacity of the buffer
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > x.length) {
+            int newCapacity = x.length * 2 + 1;
+            if (capacity > newCapacity) {
+                newCapacity = capacity;
+            }
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            size = Arrays.copyOf(size, newCapacity);
+            level = Arrays.copyOf(level, newCapacity);
+        }
+    }
+
+    /**
+     * Draws every Circle in this buffer, in order, on the provided
+     * graphical component
+     *
+     * @param   g           graphics object to draw the Circles on
+     * @param   palette     colors of the levels of the fractal
+     * @param   xOffset     pixels on the x-axis to offset the Circles by
+     * @param   yOffset     pixels on the y-axis to offset the Circles by
+     */
+    public void draw(Graphics g, Palette palette, int xOffset, int yOffset) {
+        int currentLevel = -1;
+        for (int i = 0; i < count; i++) {
+            // only change color when moving to a different level
+            if (level[i] != currentLevel) {
+                currentLevel = level[i];
+                g.setColor(palette.getColor(currentLevel));
+            }
+            fillOval(g, round(x[i] - size[i] / 2) + xOffset, 
+                round(y[i] - size[i] / 2) + yOffset, round(size[i]));
+        }
+    }
+
+    /**
+     * Rounds a pixel coordinate or size like Math.round, but in double, so
+     * that ovals far larger than the window do not overflow an int
+     *
+     * @param   value   coordinate or size in pixels
+     * @return          nearest whole number, ties rounded up
+     */
+    static double round(double value) {
+        return Math.floor(value + 0.5);
+    }
+
+    /**
+     * Fills an oval given by whole-pixel bounds in double precision. Ovals
+     * within Java2D's precision are filled with Graphics.fillOval, larger
+     * ones by fillLargeOval.
+     *
+     * @param   g           graphics object to draw the oval on
+     * @param   left        left edge of the oval's bounding square
+     * @param   top         top edge of the oval's bounding square
+     * @param   diameter    width and height of the oval's bounding square
+     */
+    static void fillOval(Graphics g, double left, double top, 
+        double diameter) {
+        if (Math.abs(left) <= MAX_OVAL_COORDINATE
+            && Math.abs(top) <= MAX_OVAL_COORDINATE
+            && diameter <= MAX_OVAL_COORDINATE) {
+            g.fillOval((int) left, (int) top, (int) diameter,
+                (int) diameter);
+        } else {
+            fillLargeOval(g, left, top, diameter);
+        }
+    }
+
+    /**
+     * Fills an oval whose bounds do not fit Graphics.fillOval. An oval
+     * covering the whole clip is filled as the clip rectangle, an oval
+     * missing it is skipped, and only an oval whose edge crosses the clip
+     * is filled as a shape in double precision.
+     *
+     * @param   g           graphics object to draw the oval on
+     * @param   left        left edge of the oval's bounding square
+     * @param   top         top edge of the oval's bounding square
+     * @param   diameter    width and height of the oval's bounding square
+     */
+    private static void fillLargeOval(Graphics g, double left, double top,
+        double diameter) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null && g instanceof Graphics2D) {
+            // an unclipped graphics object draws on its whole device
+            clip = ((Graphics2D) g).getDeviceConfiguration().getBounds();
+        }
+        if (clip == null) {
+            return;
+        }
+        double radius = diameter / 2;
+        double centerX = left + radius;
+        double centerY = top + radius;
+        // distances from the center to the nearest and farthest points of
+        // the clip rectangle
+        double nearX = Math.max(0, Math.max(clip.x - centerX,
+            centerX - (clip.x + clip.width)));
+        double nearY = Math.max(0, Math.max(clip.y - centerY,
+            centerY - (clip.y + clip.height)));
+        double farX = Math.max(Math.abs(clip.x - centerX),
+            Math.abs(clip.x + clip.width - centerX));
+        double farY = Math.max(Math.abs(clip.y - centerY),
+            Math.abs(clip.y + clip.height - centerY));
+        if (nearX * nearX + nearY * nearY >= radius * radius) {
+            return;
+        }
+        if (farX * farX + farY * farY <= radius * radius) {
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        } else if (g instanceof Graphics2D) {
+            ((Graphics2D) g).fill(new Ellipse2D.Double(left, top, diameter,
+                diameter));
+        }
+    }
+
+    /**
+     * Throws an IndexOutOfBoundsException if the given index is
+     * not a legal index of this buffer.
+     *
+     * @param   index   designated Circle in the buffer
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package fractalgen;
+
+/**
+ * Receives the Circles of a fractal pattern one at a time, in drawing
+ * order, so a pattern can be consumed without storing it
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public interface CircleSink {
+
+    /**
+     * Called for each Circle of the fractal pattern, parents before their
+     * children
+     *
+     * @param   x           x-coordinate of the Circle center
+     * @param   y           y-coordinate of the Circle center
+     * @param   diameter    height and width of the Circle
+     * @param   level       level of the Circle in the fractal; 0 is the root
+     */
+    public void accept(double x, double y, double diameter, int level);
+}
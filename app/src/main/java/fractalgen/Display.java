@@ -0,0 +1,470 @@
+package fractalgen;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Subscribes to changes in FractalGenerator and displays the retrieved
+ * fractal pattern
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class Display extends JFrame implements Observer {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Change in magnification per mouse wheel notch */
+    public static final double ZOOM_FACTOR = 1.25;
+    /** Smallest magnification, in pixels per fractal unit */
+    public static final double MIN_SCALE = 1e-2;
+    /** Largest magnification, in pixels per fractal unit */
+    public static final double MAX_SCALE = 1e12;
+    /** Key toggling the performance HUD */
+    public static final String HUD_KEY = "F3";
+    /** Key starting and stopping the animation */
+    public static final String ANIMATION_KEY = "F5";
+    /** Key switching between instanced and Circle by Circle drawing */
+    public static final String INSTANCING_KEY = "F6";
+    /** Key opening another window sharing this window's frames */
+    public static final String NEW_WINDOW_KEY = "F7";
+    /** Time resizing must pause before the new size is rendered, in ms */
+    public static final int RESIZE_SETTLE_MILLIS = 150;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Panel for displaying graphics */
+    private GPanel panel;
+    /** Size of graphics panel */
+    private Dimension size;
+    /** Object this Display is subscribed to and contains fractal pattern data */
+    private Subject subject;
+    /** Geometry and frames shared with the other windows of the Subject */
+    private final FrameCache frames;
+    /** Generates and draws frames off the event dispatch thread */
+    private RenderWorker renderer;
+    /** Renders the new size once resizing pauses */
+    private final Timer resizeSettle;
+    /** Plays the growing and swaying animation */
+    private Animator animator;
+    /** x-coordinate of the fractal point shown in the center of the panel */
+    private double viewCenterX;
+    /** y-coordinate of the fractal point shown in the center of the panel */
+    private double viewCenterY;
+    /** Magnification of the fractal, in pixels per fractal unit */
+    private double viewScale;
+    /** Last mouse position while dragging; null when not dragging */
+    private Point dragStart;
+    /** Whether the performance HUD is drawn over the fractal */
+    private boolean hudVisible;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for Display class; closing the window exits the
+     * application
+     *
+     * @param   subject     object for this Display to subscribe to
+     */
+    public Display(Subject subject) {
+        this(subject, new FrameCache(), EXIT_ON_CLOSE);
+    }
+
+    /**
+     * Constructor; sets up another window on a Subject that shares its
+     * geometry and frames with the windows using the same FrameCache.
+     * Closing the window only closes this window.
+     *
+     * @param   subject     object for this Display to subscribe to
+     * @param   frames      render product shared with other windows
+     */
+    public Display(Subject subject, FrameCache frames) {
+        this(subject, frames, DISPOSE_ON_CLOSE);
+    }
+
+    /**
+     * Constructor for Display class
+     *
+     * @param   subject         object for this Display to subscribe to
+     * @param   frames          render product shared with other windows
+     * @param   closeOperation  what closing the window does
+     */
+    private Display(Subject subject, FrameCache frames, int closeOperation) {
+        this.subject = subject;
+        this.frames = frames;
+
+        // set up graphics panel
+        panel = new GPanel();
+        renderer = new RenderWorker(subject, panel, frames);
+        animator = new Animator(subject, panel, 
+            AnimationTimeline.growAndSway());
+        size = panel.getBounds().getSize();
+        viewScale = 1;
+        resizeSettle = new Timer(RESIZE_SETTLE_MILLIS, e -> requestRender());
+        resizeSettle.setRepeats(false);
+        getContentPane().add(panel);
+        panel.repaint();
+        panel.setLayout(null);
+
+        // listen to changes in gPanel size
+        panel.addComponentListener(new ComponentAdapter() {
+
+            /**
+             * Called when gPanel size is changed, including by maximizing
+             * the window. The last frame is shown re-centered at once; the
+             * new size is rendered once resizing pauses, and only if the
+             * last frame does not already cover it.
+             *
+             * @param   e   event to be processed
+             */
+            public void componentResized(ComponentEvent e) {
+                size = e.getComponent().getBounds().getSize();
+                if (animator.isRunning()) {
+                    animator.setViewport(currentViewport());
+                } else {
+                    renderer.preview(currentViewport());
+                    resizeSettle.restart();
+                }
+            }
+        });
+
+        // zoom with the mouse wheel, pan by dragging, reset by double click
+        MouseAdapter navigation = new MouseAdapter() {
+
+            /**
+             * Called when a mouse button is pressed on gPanel. Starts
+             * panning.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            /**
+             * Called when a mouse button is released on gPanel. Stops
+             * panning.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+            }
+
+            /**
+             * Called when the mouse is dragged on gPanel. Moves the
+             * fractal along with the mouse.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart == null) {
+                    return;
+                }
+                viewCenterX -= (e.getX() - dragStart.x) / viewScale;
+                viewCenterY -= (e.getY() - dragStart.y) / viewScale;
+                dragStart = e.getPoint();
+                requestRender();
+            }
+
+            /**
+             * Called when a mouse button is clicked on gPanel. A double
+             * click resets the view to the whole fractal.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    viewCenterX = 0;
+                    viewCenterY = 0;
+                    viewScale = 1;
+                    requestRender();
+                }
+            }
+
+            /**
+             * Called when the mouse wheel is rotated over gPanel. Zooms in
+             * or out while keeping the fractal point under the mouse in
+             * place.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double newScale = viewScale 
+                    * Math.pow(ZOOM_FACTOR, -e.getPreciseWheelRotation());
+                newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, newScale));
+                double mouseX = e.getX() - size.width / 2;
+                double mouseY = e.getY() - size.height / 2;
+                viewCenterX += mouseX / viewScale - mouseX / newScale;
+                viewCenterY += mouseY / viewScale - mouseY / newScale;
+                viewScale = newScale;
+                requestRender();
+            }
+        };
+        panel.addMouseListener(navigation);
+        panel.addMouseMotionListener(navigation);
+        panel.addMouseWheelListener(navigation);
+
+        // toggle the performance HUD
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(HUD_KEY), "toggleHud");
+        panel.getActionMap().put("toggleHud", new AbstractAction() {
+
+            /**
+             * Called when the HUD key is pressed. Shows or hides the HUD.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hudVisible = !hudVisible;
+                panel.repaint();
+            }
+        });
+
+        // start and stop the animation
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(ANIMATION_KEY), "toggleAnimation");
+        panel.getActionMap().put("toggleAnimation", new AbstractAction() {
+
+            /**
+             * Called when the animation key is pressed. Starts the
+             * animation, or stops it and renders the still fractal again.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (animator.isRunning()) {
+                    animator.stop();
+                    requestRender();
+                } else {
+                    animator.start(currentViewport());
+                }
+            }
+        });
+
+        // switch between instanced and Circle by Circle drawing
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(INSTANCING_KEY), "toggleInstancing");
+        panel.getActionMap().put("toggleInstancing", new AbstractAction() {
+
+            /**
+             * Called when the instancing key is pressed. Redraws the
+             * fractal with the other renderer.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                renderer.setInstanced(!renderer.isInstanced());
+                requestRender();
+            }
+        });
+
+        // open another window on the same fractal
+        panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+            .put(KeyStroke.getKeyStroke(NEW_WINDOW_KEY), "newWindow");
+        panel.getActionMap().put("newWindow", new AbstractAction() {
+
+            /**
+             * Called when the new window key is pressed. Opens a window
+             * sharing this window's geometry and frames.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                new Display(subject, frames).requestRender();
+            }
+        });
+
+        // stop rendering once a window that does not exit is closed
+        addWindowListener(new WindowAdapter() {
+
+            /**
+             * Called when this window has been disposed. Unsubscribes it
+             * and stops its render thread.
+             *
+             * @param   e   event to be processed
+             */
+            @Override
+            public void windowClosed(WindowEvent e) {
+                subject.removeObserver(Display.this);
+                resizeSettle.stop();
+                animator.stop();
+                renderer.shutdown();
+            }
+        });
+
+        // set up default parameters for this JFrame
+        setSize(550, 600);
+        setTitle("Fractal Pattern Display");
+        setVisible(true);
+        setDefaultCloseOperation(closeOperation);
+
+        // subscribe last, so notifications never see a half-built Display;
+        // updates are delivered on the event dispatch thread, and a burst
+        // of changes is coalesced into one render
+        this.subject.registerObserver(this, SwingUtilities::invokeLater, 1);
+    }
+
+    /**
+     * Requests a new frame on the event dispatch thread, which owns the
+     * view. Updates registered through the constructor already arrive on
+     * it; any other caller is handed over to it.
+     */
+    @Override
+    public void update() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            requestRender();
+        } else {
+            SwingUtilities.invokeLater(this::requestRender);
+        }
+    }
+
+    /**
+     * Requests a new frame showing the current view of the fractal
+     */
+    private void requestRender() {
+        if (animator.isRunning()) {
+            animator.setViewport(currentViewport());
+        } else {
+            renderer.requestRender(currentViewport());
+        }
+    }
+
+    /**
+     * Creates a Viewport for the current size and view of the panel
+     *
+     * @return      current view of the fractal
+     */
+    private Viewport currentViewport() {
+        return new Viewport(size.width, size.height, viewCenterX, 
+            viewCenterY, viewScale);
+    }
+
+    /**
+     * Draws the latest fractal pattern rendered from the subscribed
+     * Subject's data, or the latest animation frame while animating.
+     * Rendering happens in the background, so this only copies the latest
+     * completed frame.
+     *
+     * @param   g   graphics component to draw the fractal pattern on
+     */
+    public void paintFractal(Graphics g) {
+        if (animator.isRunning()) {
+            animator.paintFrame(g);
+        } else {
+            renderer.paintFrame(g);
+        }
+    }
+
+    /**
+     * Draws the performance statistics of the rendered frames in the top
+     * left corner, for choosing settings that keep frames within budget
+     *
+     * @param   g   graphics component to draw the statistics on
+     */
+    public void paintHud(Graphics g) {
+        RenderStatistics statistics = renderer.getStatistics();
+        FractalParameters parameters = subject.getParameters();
+        long allocated = statistics.getLastAllocatedBytes();
+        String[] lines = {
+            renderer.isInstanced()
+                ? String.format("depth %d, instanced (%s)",
+                parameters.getRecursionDepth(), INSTANCING_KEY)
+                : String.format("depth %d, %,d circles",
+                parameters.getRecursionDepth(), 
+                statistics.getLastCircleCount()),
+            String.format("generate %.1f ms, draw %.1f ms, paint %.1f ms",
+                statistics.getLastGenerationMillis(),
+                statistics.getLastDrawMillis(),
+                statistics.getLastPaintMillis()),
+            String.format("frame %.1f ms, average %.1f ms, p95 <= %.0f ms",
+                statistics.getLastFrameMillis(),
+                statistics.getAverageFrameMillis(),
+                statistics.getFrameTimePercentileMillis(95)),
+            allocated < 0 ? "allocated n/a" 
+                : String.format("allocated %,d KB", allocated / 1024),
+            String.format("%s, estimate %,d KB, budget %,d KB",
+                statistics.isLastPassStreamed() ? "streamed" : "materialized",
+                statistics.getLastEstimatedBytes() / 1024,
+                subject.getMemoryBudget() / 1024),
+            String.format("%d frames, %d cancelled, %d shared (%s)",
+                statistics.getFramesCompleted(),
+                statistics.getFramesCancelled(),
+                frames.getSharedFrames(), NEW_WINDOW_KEY),
+            animator.isRunning()
+                ? String.format("animation %.0f fps: %d shown, %d dropped, "
+                + "%.1f ms", animator.getTargetFps(), 
+                animator.getFramesShown(), animator.getFramesDropped(),
+                animator.getLastFrameMillis())
+                : "animation off (" + ANIMATION_KEY + ")"
+        };
+
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        FontMetrics metrics = g.getFontMetrics();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        int lineHeight = metrics.getHeight();
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(0, 0, width + 8, lines.length * lineHeight + 8);
+        g.setColor(Color.white);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], 4, 4 + i * lineHeight + metrics.getAscent());
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Graphics panel displaying the provided fractal pattern
+     */
+    private class GPanel extends JPanel {
+
+        /**
+         * Called by the system to paint this GPanel
+         *
+         * @param   g   graphics for this GPanel
+         */
+        @Override
+        public void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            paintFractal(g);
+            if (hudVisible) {
+                paintHud(g);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Worker process of a RenderFarm. Connects to the coordinator, then
+ * renders the tiles it is sent and answers with their pixels until it is
+ * told to shut down or the connection closes. See RenderFarm for the
+ * protocol.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class FarmWorker {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Host name or address of the coordinator */
+    private final String host;
+    /** Port the coordinator listens on */
+    private final int port;
+    /** Generates the fractal pattern of each tile */
+    private final FractalGenerator generator = new FractalGenerator();
+    /** Draws fractal patterns into the tile image */
+    private final TileRasterizer rasterizer = new TileRasterizer();
+    /** Image the latest tile was rendered into; reused while sizes match */
+    private BufferedImage image;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up a worker for a coordinator address written as
+     * HOST:PORT. Throws IllegalArgumentException if the address is
+     * malformed.
+     *
+     * @param   address     address of the coordinator
+     */
+    public FarmWorker(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("address: " + address);
+        }
+        host = address.substring(0, colon);
+        port = Integer.parseInt(address.substring(colon + 1));
+    }
+
+    /**
+     * Connects to the coordinator and renders tiles until told to stop
+     *
+     * @throws  IOException if the connection fails
+     */
+    public void run() throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(RenderFarm.MAGIC);
+            out.writeInt(RenderFarm.PROTOCOL_VERSION);
+            out.flush();
+            while (true) {
+                byte request;
+                try {
+                    request = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (request == RenderFarm.REQUEST_SHUTDOWN) {
+                    return;
+                }
+                if (request != RenderFarm.REQUEST_TILE) {
+                    throw new IOException("unknown request: " + request);
+                }
+                renderTile(in, out);
+            }
+        }
+    }
+
+    /**
+     * Creates the Viewport of a tile of an image. It places every Circle
+     * where the whole image's Viewport would, less the tile's offset, and
+     * culls everything outside the tile.
+     *
+     * @param   whole   Viewport of the whole image
+     * @param   left    left edge of the tile in pixels
+     * @param   top     top edge of the tile in pixels
+     * @param   width   width of the tile in pixels
+     * @param   height  height of the tile in pixels
+     * @return          Viewport of the tile
+     */
+    static Viewport tileViewport(Viewport whole, int left, int top, 
+        int width, int height) {
+        // Viewport centers pixels with integer division, so the offsets
+        // are computed the same way
+        double scale = whole.getScale();
+        return new Viewport(width, height, whole.getCenterX() 
+            + (left + width / 2 - whole.getWidth() / 2) / scale, 
+            whole.getCenterY() 
+            + (top + height / 2 - whole.getHeight() / 2) / scale, scale);
+    }
+
+    /**
+     * Reads a tile request, renders the tile and answers with its pixels,
+     * or with STATUS_FAILED if rendering throws
+     *
+     * @param   in          stream from the coordinator, after the type
+     * @param   out         stream to the coordinator
+     * @throws  IOException if the request cannot be read or answered
+     */
+    private void renderTile(DataInputStream in, DataOutputStream out)
+        throws IOException {
+        int id = in.readInt();
+        int depth = in.readInt();
+        int radiusRatio = in.readInt();
+        double angleIncrement = in.readDouble();
+        Color cactusColor = new Color(in.readInt());
+        Color pearColor = new Color(in.readInt());
+        int background = in.readInt();
+        double centerX = in.readDouble();
+        double centerY = in.readDouble();
+        double scale = in.readDouble();
+        int imageWidth = in.readInt();
+        int imageHeight = in.readInt();
+        int left = in.readInt();
+        int top = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+
+        int[] pixels;
+        try {
+            FractalParameters parameters = new FractalParameters(depth,
+                radiusRatio, angleIncrement, cactusColor, pearColor);
+            Viewport viewport = tileViewport(new Viewport(imageWidth,
+                imageHeight, centerX, centerY, scale), left, top, width,
+                height);
+            if (image == null || image.getWidth() != width
+                || image.getHeight() != height) {
+                image = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_RGB);
+            }
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+                .getData();
+            Arrays.fill(pixels, background);
+            // tiles are parallelized across processes, so each is drawn on
+            // one thread; tiles too large to hold are drawn chunk by chunk
+            Palette palette = Palette.of(parameters);
+            if (generator.fitsMemoryBudget(parameters, viewport, depth)) {
+                CircleBuffer fractal = generator.getData(parameters, viewport,
+                    depth);
+                rasterizer.drawSequential(fractal, palette, image, 0, 0);
+            } else {
+                generator.streamData(parameters, viewport, depth, chunk ->
+                    rasterizer.drawSequential(chunk, palette, image, 0, 0));
+            }
+        } catch (RuntimeException | OutOfMemoryError e) {
+            out.writeInt(id);
+            out.writeInt(RenderFarm.STATUS_FAILED);
+            out.writeUTF(String.valueOf(e));
+            out.flush();
+            return;
+        }
+
+        out.writeInt(id);
+        out.writeInt(RenderFarm.STATUS_OK);
+        out.writeInt(width);
+        out.writeInt(height);
+        byte[] bytes = new byte[width * Integer.BYTES];
+        IntBuffer row = ByteBuffer.wrap(bytes).asIntBuffer();
+        for (int y = 0; y < height; y++) {
+            row.clear();
+            row.put(pixels, y * width, width);
+            out.write(bytes);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,1036 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Generates a fractal pattern representing a cactus
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class FractalGenerator implements Subject {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Starting angle to place to draw circles from */
+    public static final double STARTING_ANGLE = Math.PI/2;
+    /** Size of the root Circle; arbitrarily set to 100. Could be any size. */
+    public static final double ROOT_SIZE = 100;
+    /** Largest supported number of levels of fractals to draw */
+    public static final int MAX_DEPTH = 28;
+    /** Default level above which subtrees are generated in parallel */
+    public static final int DEFAULT_SPLIT_DEPTH = 6;
+    /** Smallest number of levels worth generating in parallel */
+    public static final int PARALLEL_MIN_DEPTH = 14;
+    /** Share of the maximum heap one pattern may take by default */
+    public static final double DEFAULT_BUDGET_SHARE = 0.25;
+    /** Peak bytes per Circle of a materialized pattern being drawn: a
+     *  growing CircleBuffer holds its old and doubled arrays at once, and
+     *  the TileRasterizer bins an index for each Circle */
+    public static final int FOOTPRINT_PER_CIRCLE =
+        3 * CircleBuffer.BYTES_PER_CIRCLE + Integer.BYTES;
+    /** Number of Circles handed over at a time when streaming */
+    public static final int STREAM_CHUNK_CIRCLES = 1 << 16;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Latest published parameters; replaced, never modified */
+    private AtomicReference<FractalParameters> parameters;
+    /** Subscribed observers; replaced on each change, never modified */
+    private final AtomicReference<Observer[]> observers;
+    /** Previously generated fractal patterns */
+    private GeometryCache<GeometryKey> cache;
+    /** Fractal patterns being generated, awaited by other requests for them */
+    private final ConcurrentHashMap<GeometryKey, CompletableFuture<CircleBuffer>>
+        generating;
+    /** Level above which subtrees are generated in parallel; 0 if never */
+    private int splitDepth;
+    /** Layout and walk state reused by generateFrame on each thread */
+    private final ThreadLocal<FrameScratch> frameScratch;
+    /** Saved geometry served instead of generating; null if none */
+    private volatile GeometryFile geometryFile;
+    /** Largest estimated footprint of a pattern that is materialized */
+    private volatile long memoryBudget;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for FractalGenerator class
+     */
+    public FractalGenerator() {
+        parameters = new AtomicReference<FractalParameters>(
+            new FractalParameters(0, 0, 0, null, null));
+        observers = new AtomicReference<Observer[]>(new Observer[0]);
+        cache = new GeometryCache<GeometryKey>();
+        generating = new ConcurrentHashMap<GeometryKey, 
+            CompletableFuture<CircleBuffer>>();
+        splitDepth = DEFAULT_SPLIT_DEPTH;
+        frameScratch = ThreadLocal.withInitial(FrameScratch::new);
+        memoryBudget = (long) (Runtime.getRuntime().maxMemory() 
+            * DEFAULT_BUDGET_SHARE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setData(int depth, int radius, Color cactusColor, 
+    Color pearColor, double childrenAngle) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth: " + depth);
+        }
+        FractalParameters requested = new FractalParameters(depth, radius, 
+            Math.toRadians(childrenAngle), cactusColor, pearColor);
+        // publish a new snapshot with the next version; repeated requests
+        // for the current parameters are dropped without notifying
+        FractalParameters current;
+        do {
+            current = parameters.get();
+            if (requested.equals(current)) {
+                return;
+            }
+        } while (!parameters.compareAndSet(current, 
+            requested.withVersion(current.getVersion() + 1)));
+        notifyObservers();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircleBuffer getData() {
+        return generateFractal();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircleBuffer getData(Viewport viewport) {
+        return generateFractal(parameters.get(), viewport, MAX_DEPTH);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CircleBuffer getData(FractalParameters snapshot, Viewport viewport,
+        int levels) {
+        return generateFractal(snapshot, viewport, levels);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FractalParameters getParameters() {
+        return parameters.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The estimate is an upper bound that assumes every subtree is
+     * visible. Without a Viewport it is the whole tree, 2^depth - 1
+     * Circles; with one, the tree ends at the first level whose subtrees
+     * are narrower than Viewport.MIN_PIXEL_SIZE, since the sizes shrink
+     * by radiusRatio percent per level and such subtrees are stored as a
+     * single Circle.
+     */
+    @Override
+    public long estimateCircles(FractalParameters parameters, 
+        Viewport viewport, int levels) {
+        int depth = Math.min(levels, parameters.getRecursionDepth());
+        if (depth == 0) {
+            return 0;
+        }
+        int stored = depth;
+        if (viewport != null) {
+            stored = visibleLevels(new TreeLayout(depth, 
+                parameters.getRadiusRatio(), parameters.getAngleIncrement()),
+                viewport);
+        }
+        return (1L << stored) - 1;
+    }
+
+    /**
+     * Retrieves the number of levels of the tree that are generated for a
+     * Viewport: the tree ends at the first level whose subtrees are
+     * narrower than Viewport.MIN_PIXEL_SIZE, since such subtrees are
+     * stored as a single Circle
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   viewport    visible area of the fractal pattern
+     * @return              number of generated levels
+     */
+    private static int visibleLevels(TreeLayout layout, Viewport viewport) {
+        for (int level = 0; level < layout.depth; level++) {
+            if (2 * layout.reaches[level] * viewport.getScale() 
+                < Viewport.MIN_PIXEL_SIZE) {
+                return level + 1;
+            }
+        }
+        return layout.depth;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateBytes(FractalParameters parameters, 
+        Viewport viewport, int levels) {
+        return estimateCircles(parameters, viewport, levels) 
+            * FOOTPRINT_PER_CIRCLE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean fitsMemoryBudget(FractalParameters parameters, 
+        Viewport viewport, int levels) {
+        return estimateBytes(parameters, viewport, levels) <= memoryBudget;
+    }
+
+    /**
+     * Sets the largest estimated footprint of a pattern that is generated
+     * into a CircleBuffer; larger patterns have to be streamed. Throws
+     * IllegalArgumentException if bytes is smaller than 0.
+     *
+     * @param   bytes   memory budget in bytes
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes: " + bytes);
+        }
+        memoryBudget = bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The Circles are generated from the parameters even if an attached
+     * GeometryFile holds them, since selecting from the file collects
+     * them in one buffer.
+     */
+    @Override
+    public int streamData(FractalParameters parameters, Viewport viewport,
+        int levels, Consumer<CircleBuffer> sink) {
+        int depth = Math.min(levels, parameters.getRecursionDepth());
+        if (depth == 0) {
+            return 0;
+        }
+        TreeLayout layout = new TreeLayout(depth, 
+            parameters.getRadiusRatio(), parameters.getAngleIncrement());
+        CircleBuffer chunk = new CircleBuffer(STREAM_CHUNK_CIRCLES);
+        int streamed = generateVisible(layout, viewport, chunk, 
+            new WalkStack(depth + 1), sink);
+        if (chunk.size() > 0) {
+            sink.accept(chunk);
+        }
+        return streamed + chunk.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerObserver(Observer observer) {
+        // copy on write, so notifying never locks and never sees a
+        // registry being changed
+        Observer[] current;
+        Observer[] updated;
+        do {
+            current = observers.get();
+            updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = observer;
+        } while (!observers.compareAndSet(current, updated));
+    }
+
+    /**
+     * Subscribes an Observer whose updates are delivered on an Executor
+     * rather than on the thread that changed the data, so it cannot slow
+     * down the other Observers. See AsyncObserver for how pending updates
+     * are bounded. The Observer is unsubscribed with removeObserver like
+     * any other.
+     *
+     * @param   observer    Observer to subscribe to this Subject
+     * @param   executor    runs the Observer's updates
+     * @param   capacity    maximum number of pending updates
+     * @return              wrapper delivering the updates
+     */
+    @Override
+    public AsyncObserver registerObserver(Observer observer, Executor executor,
+        int capacity) {
+        AsyncObserver async = new AsyncObserver(observer, executor, capacity);
+        registerObserver(async);
+        return async;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Does nothing if the Observer is not subscribed. An Observer
+     * subscribed for asynchronous updates is found through its wrapper.
+     */
+    @Override
+    public void removeObserver(Observer observer) {
+        Observer[] current;
+        Observer[] updated;
+        do {
+            current = observers.get();
+            int index = -1;
+            for (int i = 0; i < current.length && index < 0; i++) {
+                if (current[i].equals(observer)
+                    || (current[i] instanceof AsyncObserver 
+                    && ((AsyncObserver) current[i]).getDelegate()
+                    .equals(observer))) {
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                return;
+            }
+            updated = new Observer[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index,
+                updated.length - index);
+        } while (!observers.compareAndSet(current, updated));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Observers subscribed or unsubscribed while notifying take effect
+     * from the next notification.
+     */
+    @Override
+    public void notifyObservers() {
+        for (Observer observer : observers.get()) {
+            observer.update();
+        }
+    }
+
+    /**
+     * Retrieves the number of times a requested fractal pattern was
+     * already cached
+     *
+     * @return      number of cache hits
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * Retrieves the number of times a requested fractal pattern had to be
+     * generated
+     *
+     * @return      number of cache misses
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * Serves the visible parts of fractal patterns from a saved file
+     * rather than generating them, whenever the parameters match the
+     * file's geometry and the Viewport is within the file's precision.
+     * Other parameters are still generated.
+     *
+     * @param   file    saved geometry to serve; null to detach
+     */
+    public void attach(GeometryFile file) {
+        geometryFile = file;
+        cache.clear();
+    }
+
+    /**
+     * Retrieves the cactus fractal pattern for the current parameters,
+     * generating it only if it is not already cached. Throws
+     * IllegalStateException if the whole tree does not fit the memory
+     * budget; walk streams it instead.
+     *
+     * @return      Circles that compose the generated fractal pattern
+     */
+    public CircleBuffer generateFractal(){
+        FractalParameters snapshot = parameters.get();
+        GeometryKey key = new GeometryKey(snapshot, null, 
+            snapshot.getRecursionDepth());
+        CircleBuffer fractal = cache.get(key);
+        if (fractal == null) {
+            long bytes = estimateBytes(snapshot, null, 
+                snapshot.getRecursionDepth());
+            if (bytes > memoryBudget) {
+                throw new IllegalStateException("estimated bytes: " + bytes
+                    + " over budget: " + memoryBudget);
+            }
+            // a full tree has 2^depth - 1 Circles; presize so the buffer
+            // never has to grow while generating
+            fractal = new CircleBuffer(
+                (1 << snapshot.getRecursionDepth()) - 1);
+            fractal = generateFractal(snapshot, fractal);
+            cache.put(key, fractal);
+        }
+        return fractal;
+    }
+
+    /**
+     * Retrieves the part of the cactus fractal pattern for a snapshot of
+     * the parameters that is visible in a Viewport, generating it only if it is
+     * not already cached. Subtrees outside the Viewport are skipped, and
+     * subtrees narrower than Viewport.MIN_PIXEL_SIZE are replaced by a
+     * single Circle covering them, so the number of Circles depends on the
+     * visible detail rather than on the recursion depth.
+     *
+     * Only the first levels of the tree are generated, which allows a
+     * coarse preview to be drawn before the whole tree. Throws
+     * CancellationException if the calling thread is interrupted while
+     * generating; nothing is cached in that case. Concurrent requests for
+     * the same geometry are generated once.
+     *
+     * If an attached GeometryFile holds the geometry for the parameters,
+     * the Circles are read from it instead of being generated.
+     *
+     * @param   parameters  parameters to generate the fractal pattern with
+     * @param   viewport    visible area of the fractal pattern
+     * @param   levels      largest number of levels to generate
+     * @return              Circles that compose the visible fractal
+     *                      pattern, in pixel coordinates of the Viewport
+     */
+    public CircleBuffer generateFractal(FractalParameters parameters, 
+        Viewport viewport, int levels) {
+        int depth = Math.min(levels, parameters.getRecursionDepth());
+        GeometryKey key = new GeometryKey(parameters, viewport, depth);
+        CircleBuffer fractal = cache.get(key);
+        if (fractal != null) {
+            return fractal;
+        }
+        // a thread asking for geometry another thread is generating waits
+        // for it instead of generating it again
+        CompletableFuture<CircleBuffer> created = 
+            new CompletableFuture<CircleBuffer>();
+        CompletableFuture<CircleBuffer> existing = 
+            generating.putIfAbsent(key, created);
+        if (existing != null) {
+            try {
+                return existing.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("generation interrupted");
+            } catch (ExecutionException | CancellationException e) {
+                // the other generation was cancelled; generate it here
+                return generateVisible(parameters, viewport, depth);
+            }
+        }
+        try {
+            fractal = generateVisible(parameters, viewport, depth);
+            cache.put(key, fractal);
+            created.complete(fractal);
+            return fractal;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            generating.remove(key, created);
+        }
+    }
+
+    /**
+     * Generates the first levels of the fractal pattern visible in a
+     * Viewport, from the attached GeometryFile if it holds the geometry.
+     * When enough levels are visible to be worth splitting, the visible
+     * subtrees rooted at the split depth are generated in parallel.
+     * Throws CancellationException if the calling thread is interrupted.
+     *
+     * @param   parameters  parameters to generate the fractal pattern with
+     * @param   viewport    visible area of the fractal pattern
+     * @param   depth       number of levels to generate
+     * @return              Circles that compose the visible fractal
+     *                      pattern, in pixel coordinates of the Viewport
+     */
+    private CircleBuffer generateVisible(FractalParameters parameters,
+        Viewport viewport, int depth) {
+        CircleBuffer fractal = new CircleBuffer();
+        GeometryFile file = geometryFile;
+        if (file != null && file.hasGeometryOf(parameters)
+            && viewport.getScale() <= GeometryFile.MAX_SCALE) {
+            file.select(viewport, depth, fractal);
+        } else if (depth > 0) {
+            TreeLayout layout = new TreeLayout(depth, 
+                parameters.getRadiusRatio(), 
+                parameters.getAngleIncrement());
+            if (isWorthSplitting(visibleLevels(layout, viewport))) {
+                fractal = generateVisibleInParallel(layout, viewport, 
+                    splitDepth);
+            } else {
+                generateVisible(layout, viewport, fractal, 
+                    new WalkStack(depth + 1), null);
+            }
+        }
+        return fractal;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The Circles replace the buffer's contents. The layout and walk state
+     * are reused from the previous call on the same thread, so repeated
+     * calls with a buffer that is large enough allocate nothing. Throws
+     * CancellationException if the calling thread is interrupted.
+     */
+    @Override
+    public void generateFrame(int depth, int radiusRatio, 
+        double angleIncrement, Viewport viewport, CircleBuffer fractal) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth: " + depth);
+        }
+        fractal.clear();
+        if (depth == 0) {
+            return;
+        }
+        FrameScratch scratch = frameScratch.get();
+        scratch.layout.update(depth, radiusRatio, angleIncrement);
+        generateVisible(scratch.layout, viewport, fractal, scratch.stack, 
+            null);
+    }
+
+    /**
+     * Walks every Circle of the cactus fractal pattern for a set of
+     * parameters, passing each to a sink in the same order as getData()
+     * stores them. Nothing is stored or cached, so memory use does not
+     * depend on the recursion depth. Throws CancellationException if the
+     * calling thread is interrupted.
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   sink        receives the Circles, in fractal coordinates
+     */
+    public void walk(FractalParameters parameters, CircleSink sink) {
+        int depth = parameters.getRecursionDepth();
+        if (depth == 0) {
+            return;
+        }
+        TreeLayout layout = new TreeLayout(depth, 
+            parameters.getRadiusRatio(), parameters.getAngleIncrement());
+        WalkStack stack = new WalkStack(depth + 1);
+        int top = stack.start(layout);
+        while (top > 0) {
+            top--;
+            double x = stack.x[top];
+            double y = stack.y[top];
+            int level = stack.level[top];
+            sink.accept(x, y, layout.sizes[level], level);
+            top = stack.pushChildren(layout, top, x, y, stack.cos[top], 
+                stack.sin[top], level);
+        }
+    }
+
+    /**
+     * Retrieves the radius around the root Circle that contains the whole
+     * cactus fractal pattern for a set of parameters
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @return              radius in fractal units; 0 if the depth is 0
+     */
+    public double getReach(FractalParameters parameters) {
+        int depth = parameters.getRecursionDepth();
+        if (depth == 0) {
+            return 0;
+        }
+        return new TreeLayout(depth, parameters.getRadiusRatio(),
+            parameters.getAngleIncrement()).reaches[0];
+    }
+
+    /**
+     * Generates Circles composing the cactus fractal pattern. When the tree
+     * is worth splitting, subtrees below the split depth are generated in
+     * parallel, each into its own slice of the buffer; otherwise the whole
+     * tree is generated on the calling thread. Both produce identical
+     * Circles in the same order.
+     *
+     * @param   parameters      parameters of the fractal pattern
+     * @param   fractal         buffer receiving the generated Circles
+     * @return                  a buffer of Circles composing the cactus 
+     *                          fractal pattern
+     */
+    private CircleBuffer generateFractal(FractalParameters parameters, 
+        CircleBuffer fractal) {
+        int depth = parameters.getRecursionDepth();
+        if (depth == 0) {
+            return fractal;
+        }
+        TreeLayout layout = new TreeLayout(depth, 
+            parameters.getRadiusRatio(), parameters.getAngleIncrement());
+        int start = fractal.reserve(layout.subtreeSize(0));
+        double cos = Math.cos(STARTING_ANGLE);
+        double sin = Math.sin(STARTING_ANGLE);
+        if (isWorthSplitting(depth)) {
+            ForkJoinPool.commonPool().invoke(new SubtreeTask(layout, fractal, 
+                start, 0, 0, cos, sin, 0, splitDepth));
+        } else {
+            generateSubtree(layout, fractal, start, 0, 0, cos, sin, 0);
+        }
+        return fractal;
+    }
+
+    /**
+     * Sets the level above which subtrees are generated in parallel. Each
+     * node above this level forks its two subtrees, so up to 2^splitDepth
+     * subtrees are generated concurrently; for a visible pattern, only
+     * the visible subtrees at this level are forked. Throws
+     * IllegalArgumentException if splitDepth is smaller than 0.
+     *
+     * @param   splitDepth  level to split generation at; 0 to always
+     *                      generate on the calling thread
+     */
+    public void setSplitDepth(int splitDepth) {
+        if (splitDepth < 0) {
+            throw new IllegalArgumentException("splitDepth: " + splitDepth);
+        }
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Retrieves the level above which subtrees are generated in parallel.
+     *
+     * @return      level generation is split at; 0 if generation is not
+     *              parallel
+     */
+    public int getSplitDepth() {
+        return splitDepth;
+    }
+
+    /**
+     * Determines whether generating a number of levels is split into
+     * parallel subtrees: a split depth must be set, the levels must be at
+     * least PARALLEL_MIN_DEPTH, and the common fork/join pool must have
+     * more than one worker, since the thread waiting for the subtrees does
+     * not generate any of them
+     *
+     * @param   levels  number of generated levels
+     * @return          true if the subtrees are generated in parallel
+     */
+    private boolean isWorthSplitting(int levels) {
+        return splitDepth > 0 && levels >= PARALLEL_MIN_DEPTH
+            && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Generates the Circles of a subtree into consecutive indices of the
+     * buffer. The subtree is walked by a WalkStack, so Circles are
+     * written in the same parent-before-child order as a recursive walk.
+     * Coordinates and sizes are kept in double precision, so every level
+     * down to the recursion depth is generated. The walk does not check
+     * for interruption, since fork/join tasks are cancelled without it.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   fractal     buffer receiving the generated Circles
+     * @param   index       index of the subtree root in the buffer
+     * @param   x           x-coordinate of the subtree root
+     * @param   y           y-coordinate of the subtree root
+     * @param   cos         cosine of the angle from the parent to the root
+     * @param   sin         sine of the angle from the parent to the root
+     * @param   level       level of the subtree root
+     */
+    private static void generateSubtree(TreeLayout layout, 
+        CircleBuffer fractal, int index, double x, double y, double cos, 
+        double sin, int level) {
+        WalkStack stack = new WalkStack(layout.depth + 1);
+        int top = stack.start(layout, x, y, cos, sin, level);
+        while (top > 0) {
+            top--;
+            x = stack.x[top];
+            y = stack.y[top];
+            level = stack.level[top];
+            fractal.set(index++, (float) x, (float) y, 
+                (float) layout.sizes[level], level);
+            top = stack.pushChildrenUninterruptibly(layout, top, x, y, 
+                stack.cos[top], stack.sin[top], level);
+        }
+    }
+
+    /**
+     * Generates the Circles of the tree that are visible in a Viewport, in
+     * the same parent-before-child order as generateSubtree. Each subtree
+     * is tested against the Viewport using a circle that bounds all of its
+     * descendants; subtrees outside the Viewport are skipped, and subtrees
+     * whose bound is narrower than Viewport.MIN_PIXEL_SIZE are added as a
+     * single Circle the size of the bound. Throws CancellationException if
+     * the calling thread is interrupted.
+     *
+     * With a sink, the buffer is handed to it and cleared whenever it
+     * holds STREAM_CHUNK_CIRCLES Circles, so it never grows beyond that;
+     * the Circles left in it at the end are the caller's to hand over.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   viewport    visible area of the fractal pattern
+     * @param   fractal     buffer receiving the Circles, in pixel coordinates
+     * @param   stack       pending nodes of the walk; its contents are
+     *                      discarded
+     * @param   sink        receives full chunks; null to keep every Circle
+     *                      in the buffer
+     * @return              number of Circles handed to the sink
+     */
+    private static int generateVisible(TreeLayout layout, Viewport viewport,
+        CircleBuffer fractal, WalkStack stack, Consumer<CircleBuffer> sink) {
+        return generateVisible(layout, viewport, fractal, stack, 
+            stack.start(layout), sink, -1, null);
+    }
+
+    /**
+     * Generates the visible Circles of the nodes pushed on a started
+     * WalkStack and of their subtrees; see generateVisible. Subtrees
+     * rooted at the fork level that are visible and not collapsed are
+     * not walked here but forked as VisibleTasks, each recording the
+     * index of the buffer its Circles belong at.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   viewport    visible area of the fractal pattern
+     * @param   fractal     buffer receiving the Circles, in pixel coordinates
+     * @param   stack       started walk
+     * @param   top         top of the stack
+     * @param   sink        receives full chunks; null to keep every Circle
+     *                      in the buffer
+     * @param   forkLevel   level of the subtrees to fork; -1 to fork none
+     * @param   forked      receives the forked tasks, in walk order; null
+     *                      if forkLevel is -1
+     * @return              number of Circles handed to the sink
+     */
+    private static int generateVisible(TreeLayout layout, Viewport viewport,
+        CircleBuffer fractal, WalkStack stack, int top, 
+        Consumer<CircleBuffer> sink, int forkLevel, List<VisibleTask> forked) {
+        double scale = viewport.getScale();
+        int streamed = 0;
+        while (top > 0) {
+            top--;
+            double x = stack.x[top];
+            double y = stack.y[top];
+            int level = stack.level[top];
+            double pixelX = viewport.toPixelX(x);
+            double pixelY = viewport.toPixelY(y);
+            double reach = layout.reaches[level] * scale;
+            if (!viewport.intersects(pixelX, pixelY, reach)) {
+                continue;
+            }
+            if (sink != null && fractal.size() == STREAM_CHUNK_CIRCLES) {
+                sink.accept(fractal);
+                streamed += fractal.size();
+                fractal.clear();
+            }
+            if (level + 1 == layout.depth 
+                || 2 * reach < Viewport.MIN_PIXEL_SIZE) {
+                // a leaf's bound is the leaf itself
+                fractal.add((float) pixelX, (float) pixelY, 
+                    (float) (2 * reach), level);
+            } else if (level == forkLevel) {
+                VisibleTask task = new VisibleTask(layout, viewport, 
+                    fractal.size(), x, y, stack.cos[top], stack.sin[top], 
+                    level);
+                task.fork();
+                forked.add(task);
+            } else {
+                fractal.add((float) pixelX, (float) pixelY, 
+                    (float) (layout.sizes[level] * scale), level);
+                top = stack.pushChildren(layout, top, x, y, stack.cos[top],
+                    stack.sin[top], level);
+            }
+        }
+        return streamed;
+    }
+
+    /**
+     * Generates the Circles of the tree that are visible in a Viewport,
+     * with the visible subtrees rooted at a fork level generated in
+     * parallel. The levels above are walked on the calling thread, which
+     * forks a VisibleTask for each such subtree; the tasks' Circles are
+     * spliced into the walked Circles in walk order, so the result is
+     * identical to generateVisible's. Throws CancellationException if
+     * the calling thread is interrupted; forked tasks that have not
+     * started are then cancelled.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   viewport    visible area of the fractal pattern
+     * @param   forkLevel   level of the subtrees generated in parallel
+     * @return              Circles that compose the visible fractal
+     *                      pattern, in pixel coordinates of the Viewport
+     */
+    private static CircleBuffer generateVisibleInParallel(TreeLayout layout,
+        Viewport viewport, int forkLevel) {
+        CircleBuffer upper = new CircleBuffer();
+        List<VisibleTask> forked = new ArrayList<VisibleTask>();
+        WalkStack stack = new WalkStack(layout.depth + 1);
+        try {
+            generateVisible(layout, viewport, upper, stack, 
+                stack.start(layout), null, forkLevel, forked);
+            int total = upper.size();
+            for (VisibleTask task : forked) {
+                total += task.get().size();
+            }
+            CircleBuffer fractal = new CircleBuffer(total);
+            int from = 0;
+            for (VisibleTask task : forked) {
+                fractal.append(upper, from, task.index);
+                CircleBuffer subtree = task.getRawResult();
+                fractal.append(subtree, 0, subtree.size());
+                from = task.index;
+            }
+            fractal.append(upper, from, upper.size());
+            return fractal;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("generation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // completed tasks ignore this; running ones finish unobserved
+            for (VisibleTask task : forked) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Identifies a cached fractal pattern by the parameters that determine
+     * its geometry and the Viewport it was generated for, if any. Colors
+     * are not part of the key, since they are applied when drawing.
+     */
+    private static final class GeometryKey {
+        /** Number of levels that were generated */
+        private final int levels;
+        /** Ratio of child to parent radius */
+        private final int radiusRatio;
+        /** Angle from parent to child Circles, in radians */
+        private final double angleIncrement;
+        /** Viewport the pattern was generated for; null for the whole tree */
+        private final Viewport viewport;
+
+        /**
+         * Constructor for GeometryKey class
+         *
+         * @param   parameters  parameters the pattern was generated with
+         * @param   viewport    Viewport the pattern was generated for; null
+         *                      for the whole tree
+         * @param   levels      number of levels that were generated
+         */
+        private GeometryKey(FractalParameters parameters, Viewport viewport,
+            int levels) {
+            this.levels = levels;
+            this.radiusRatio = parameters.getRadiusRatio();
+            this.angleIncrement = parameters.getAngleIncrement();
+            this.viewport = viewport;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof GeometryKey)) {
+                return false;
+            }
+            GeometryKey other = (GeometryKey) o;
+            return levels == other.levels 
+                && radiusRatio == other.radiusRatio
+                && Double.compare(angleIncrement, other.angleIncrement) == 0
+                && (viewport == null ? other.viewport == null 
+                : viewport.equals(other.viewport));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            int result = levels;
+            result = 31 * result + radiusRatio;
+            result = 31 * result + Double.hashCode(angleIncrement);
+            return 31 * result + (viewport == null ? 0 : viewport.hashCode());
+        }
+    }
+
+    /**
+     * Layout and walk state that generateFrame reuses between calls
+     */
+    private static class FrameScratch {
+        /** Sizes and angles of the most recent frame's tree */
+        private final TreeLayout layout = new TreeLayout(MAX_DEPTH, 0, 0);
+        /** Pending nodes of the walk */
+        private final WalkStack stack = new WalkStack(MAX_DEPTH + 1);
+    }
+
+    /**
+     * Generates a subtree, forking its two child subtrees as separate
+     * tasks until the split depth is reached. Each task writes only to
+     * its own slice of the buffer.
+     */
+    private static class SubtreeTask extends RecursiveAction {
+        /** Sizes and angles of the tree */
+        private final TreeLayout layout;
+        /** Buffer receiving the generated Circles */
+        private final CircleBuffer fractal;
+        /** Index of the subtree root in the buffer */
+        private final int index;
+        /** x-coordinate of the subtree root */
+        private final double x;
+        /** y-coordinate of the subtree root */
+        private final double y;
+        /** Cosine of the angle from the parent to the root */
+        private final double cos;
+        /** Sine of the angle from the parent to the root */
+        private final double sin;
+        /** Level of the subtree root */
+        private final int level;
+        /** Level below which subtrees are generated sequentially */
+        private final int splitDepth;
+
+        /**
+         * Constructor for SubtreeTask class
+         *
+         * @param   layout      sizes and angles of the tree
+         * @param   fractal     buffer receiving the generated Circles
+         * @param   index       index of the subtree root in the buffer
+         * @param   x           x-coordinate of the subtree root
+         * @param   y           y-coordinate of the subtree root
+         * @param   cos         cosine of the angle from the parent to the root
+         * @param   sin         sine of the angle from the parent to the root
+         * @param   level       level of the subtree root
+         * @param   splitDepth  level below which subtrees are generated
+         *                      sequentially
+         */
+        private SubtreeTask(TreeLayout layout, CircleBuffer fractal, int index,
+            double x, double y, double cos, double sin, int level, 
+            int splitDepth) {
+            this.layout = layout;
+            this.fractal = fractal;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.cos = cos;
+            this.sin = sin;
+            this.level = level;
+            this.splitDepth = splitDepth;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (level >= splitDepth || level + 1 >= layout.depth) {
+                generateSubtree(layout, fractal, index, x, y, cos, sin, level);
+                return;
+            }
+            fractal.set(index, (float) x, (float) y, 
+                (float) layout.sizes[level], level);
+
+            double hypotenuse = layout.hypotenuses[level];
+            double leftCos = layout.leftCos(cos, sin);
+            double leftSin = layout.leftSin(cos, sin);
+            double rightCos = layout.rightCos(cos, sin);
+            double rightSin = layout.rightSin(cos, sin);
+            // the left subtree directly follows its parent, and the right
+            // subtree directly follows the left subtree
+            int leftIndex = index + 1;
+            int rightIndex = leftIndex + layout.subtreeSize(level + 1);
+            invokeAll(
+                new SubtreeTask(layout, fractal, leftIndex, 
+                    x - leftCos * hypotenuse, y - leftSin * hypotenuse, 
+                    leftCos, leftSin, level + 1, splitDepth),
+                new SubtreeTask(layout, fractal, rightIndex, 
+                    x - rightCos * hypotenuse, y - rightSin * hypotenuse, 
+                    rightCos, rightSin, level + 1, splitDepth));
+        }
+    }
+
+    /**
+     * Generates the visible Circles of a subtree into a buffer of its own;
+     * see generateVisibleInParallel
+     */
+    private static class VisibleTask extends RecursiveTask<CircleBuffer> {
+        /** Sizes and angles of the tree */
+        private final TreeLayout layout;
+        /** Visible area of the fractal pattern */
+        private final Viewport viewport;
+        /** Index of the walked Circles the subtree's Circles belong at */
+        private final int index;
+        /** x-coordinate of the subtree root */
+        private final double x;
+        /** y-coordinate of the subtree root */
+        private final double y;
+        /** Cosine of the angle from the parent to the root */
+        private final double cos;
+        /** Sine of the angle from the parent to the root */
+        private final double sin;
+        /** Level of the subtree root */
+        private final int level;
+
+        /**
+         * Constructor for VisibleTask class
+         *
+         * @param   layout      sizes and angles of the tree
+         * @param   viewport    visible area of the fractal pattern
+         * @param   index       index of the walked Circles the subtree's
+         *                      Circles belong at
+         * @param   x           x-coordinate of the subtree root
+         * @param   y           y-coordinate of the subtree root
+         * @param   cos         cosine of the angle from the parent to the root
+         * @param   sin         sine of the angle from the parent to the root
+         * @param   level       level of the subtree root
+         */
+        private VisibleTask(TreeLayout layout, Viewport viewport, int index,
+            double x, double y, double cos, double sin, int level) {
+            this.layout = layout;
+            this.viewport = viewport;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.cos = cos;
+            this.sin = sin;
+            this.level = level;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected CircleBuffer compute() {
+            CircleBuffer fractal = new CircleBuffer();
+            WalkStack stack = new WalkStack(layout.depth + 1);
+            generateVisible(layout, viewport, fractal, stack, 
+                stack.start(layout, x, y, cos, sin, level), null, -1, null);
+            return fractal;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package fractalgen;
+
+import java.awt.Color;
+
+/**
+ * Immutable set of parameters that fully determines a generated fractal
+ * pattern. Used to look up previously generated patterns.
+ *
+ * Each set of parameters published by a Subject carries a version number
+ * that increases with every change, so consumers can tell which of two
+ * snapshots is newer. The version is not part of equality: equal
+ * parameters with different versions produce the same fractal pattern.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public final class FractalParameters {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of levels of fractals to draw */
+    private final int recursionDepth;
+    /** Ratio of child to parent radius */
+    private final int radiusRatio;
+    /** Angle from parent to child Circles, in radians */
+    private final double angleIncrement;
+    /** Color of the cactus bodies */
+    private final Color cactusColor;
+    /** Color of the cactus tips */
+    private final Color pearColor;
+    /** Position of this snapshot in the sequence of published parameters */
+    private final long version;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up unversioned parameters.
+     *
+     * @param   recursionDepth  number of levels of fractals to draw
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   angleIncrement  angle from parent to child Circles, in radians
+     * @param   cactusColor     color of the cactus bodies
+     * @param   pearColor       color of the cactus tips
+     */
+    public FractalParameters(int recursionDepth, int radiusRatio,
+        double angleIncrement, Color cactusColor, Color pearColor) {
+        this(recursionDepth, radiusRatio, angleIncrement, cactusColor, 
+            pearColor, 0);
+    }
+
+    /**
+     * Constructor for FractalParameters class
+     *
+     * @param   recursionDepth  number of levels of fractals to draw
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   angleIncrement  angle from parent to child Circles, in radians
+     * @param   cactusColor     color of the cactus bodies
+     * @param   pearColor       color of the cactus tips
+     * @param   version         position of this snapshot in the sequence of
+     *                          published parameters
+     */
+    public FractalParameters(int recursionDepth, int radiusRatio,
+        double angleIncrement, Color cactusColor, Color pearColor, 
+        long version) {
+        this.recursionDepth = recursionDepth;
+        this.radiusRatio = radiusRatio;
+        this.angleIncrement = angleIncrement;
+        this.cactusColor = cactusColor;
+        this.pearColor = pearColor;
+        this.version = version;
+    }
+
+    /**
+     * Creates a copy of these parameters with a different version
+     *
+     * @param   newVersion  version of the copy
+     * @return              parameters equal to these, with newVersion
+     */
+    public FractalParameters withVersion(long newVersion) {
+        return new FractalParameters(recursionDepth, radiusRatio, 
+            angleIncrement, cactusColor, pearColor, newVersion);
+    }
+
+    /**
+     * Retrieves the number of levels of fractals to draw
+     *
+     * @return      number of levels of fractals to draw
+     */
+    public int getRecursionDepth() {
+        return recursionDepth;
+    }
+
+    /**
+     * Retrieves the ratio of child to parent radius
+     *
+     * @return      ratio of child to parent radius
+     */
+    public int getRadiusRatio() {
+        return radiusRatio;
+    }
+
+    /**
+     * Retrieves the angle from parent to child Circles
+     *
+     * @return      angle from parent to child Circles, in radians
+     */
+    public double getAngleIncrement() {
+        return angleIncrement;
+    }
+
+    /**
+     * Retrieves the color of the cactus bodies
+     *
+     * @return      color of the cactus bodies
+     */
+    public Color getCactusColor() {
+        return cactusColor;
+    }
+
+    /**
+     * Retrieves the color of the cactus tips
+     *
+     * @return      color of the cactus tips
+     */
+    public Color getPearColor() {
+        return pearColor;
+    }
+
+    /**
+     * Retrieves the position of this snapshot in the sequence of published
+     * parameters
+     *
+     * @return      version of these parameters; 0 if unversioned
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FractalParameters)) {
+            return false;
+        }
+        FractalParameters other = (FractalParameters) o;
+        return recursionDepth == other.recursionDepth
+            && radiusRatio == other.radiusRatio
+            && Double.compare(angleIncrement, other.angleIncrement) == 0
+            && sameColor(cactusColor, other.cactusColor)
+            && sameColor(pearColor, other.pearColor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = recursionDepth;
+        result = 31 * result + radiusRatio;
+        result = 31 * result + Double.hashCode(angleIncrement);
+        result = 31 * result + (cactusColor == null ? 0 : cactusColor.hashCode());
+        result = 31 * result + (pearColor == null ? 0 : pearColor.hashCode());
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "depth=" + recursionDepth + ", ratio=" + radiusRatio
+            + ", angle=" + Math.toDegrees(angleIncrement);
+    }
+
+    /**
+     * Compares two possibly null colors for equality
+     *
+     * @param   a   first color
+     * @param   b   second color
+     * @return      true if both colors are null or equal, false otherwise
+     */
+    private static boolean sameColor(Color a, Color b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
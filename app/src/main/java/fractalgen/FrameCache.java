@@ -0,0 +1,285 @@
+package fractalgen;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Render product shared by the RenderWorkers of several windows showing
+ * the same Subject, so that N windows cost about one generation rather
+ * than N.
+ *
+ * Geometry is shared through the cover Viewport: a window asks for the
+ * Circles of a Viewport with its own center and scale but the size of the
+ * largest window registered with that center and scale, and draws them
+ * offset into its own frame. Windows showing the same view at different
+ * sizes therefore request the same geometry, which the Subject generates
+ * once, while a window showing another view is not enlarged by them.
+ *
+ * Completed frames are shared as well. Each is kept, bounded by a total
+ * number of pixels with the least recently used frames evicted first, and
+ * a frame being rendered by one worker is awaited by the others rather
+ * than rendered again, so each resolution is rasterized once.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class FrameCache {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Default maximum number of cached pixels, about 64 MiB of frames */
+    public static final long DEFAULT_MAX_PIXELS = 1L << 24;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Completed frames, bounded by their number of pixels */
+    private final WeightedLruCache<FrameKey, BufferedImage> frames;
+    /** Frames being rendered, awaited by workers wanting the same frame */
+    private final ConcurrentHashMap<FrameKey, CompletableFuture<BufferedImage>>
+        rendering;
+    /** Latest view requested by each registered viewer */
+    private final ConcurrentHashMap<Object, Viewport> viewerViews;
+    /** Number of frames served from another worker's render */
+    private long awaited;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an empty cache of default capacity.
+     */
+    public FrameCache() {
+        this(DEFAULT_MAX_PIXELS);
+    }
+
+    /**
+     * Constructor; sets up an empty cache bounded by a designated number of
+     * pixels. Throws IllegalArgumentException if maxPixels is smaller than
+     * 0.
+     *
+     * @param   maxPixels   maximum number of cached pixels
+     */
+    public FrameCache(long maxPixels) {
+        if (maxPixels < 0) {
+            throw new IllegalArgumentException("maxPixels: " + maxPixels);
+        }
+        frames = new WeightedLruCache<FrameKey, BufferedImage>(maxPixels,
+            FrameCache::pixels);
+        rendering = new ConcurrentHashMap<FrameKey,
+            CompletableFuture<BufferedImage>>();
+        viewerViews = new ConcurrentHashMap<Object, Viewport>();
+    }
+
+    /**
+     * Records the view a viewer is about to render and retrieves the
+     * Viewport whose geometry the viewer should draw: the viewer's center
+     * and scale, at the size of the largest registered viewer with the
+     * same center and scale. Viewers showing other views are ignored, so
+     * they never enlarge what this viewer generates. Pixel coordinates in
+     * the cover Viewport are offset from the viewer's by getOffset.
+     *
+     * @param   viewer      window or worker rendering the frame
+     * @param   viewport    view the viewer renders
+     * @return              Viewport covering the viewer's view
+     */
+    public Viewport cover(Object viewer, Viewport viewport) {
+        viewerViews.put(viewer, viewport);
+        int width = viewport.getWidth();
+        int height = viewport.getHeight();
+        for (Viewport other : viewerViews.values()) {
+            if (other.getCenterX() == viewport.getCenterX()
+                && other.getCenterY() == viewport.getCenterY()
+                && other.getScale() == viewport.getScale()) {
+                width = Math.max(width, other.getWidth());
+                height = Math.max(height, other.getHeight());
+            }
+        }
+        if (width == viewport.getWidth() && height == viewport.getHeight()) {
+            return viewport;
+        }
+        return new Viewport(width, height, viewport.getCenterX(),
+            viewport.getCenterY(), viewport.getScale());
+    }
+
+    /**
+     * Retrieves how far the pixel coordinates of a cover Viewport must be
+     * moved to land in a viewer's frame
+     *
+     * @param   cover       Viewport returned by cover
+     * @param   viewport    view the viewer renders
+     * @return              offsets on the x and y axes, in pixels
+     */
+    public static int[] getOffset(Viewport cover, Viewport viewport) {
+        // Viewport centers its view on width / 2 in integer pixels
+        return new int[] {viewport.getWidth() / 2 - cover.getWidth() / 2,
+            viewport.getHeight() / 2 - cover.getHeight() / 2};
+    }
+
+    /**
+     * Stops counting a viewer's size toward the cover Viewport, once its
+     * window is closed
+     *
+     * @param   viewer      window or worker that stopped rendering
+     */
+    public void removeViewer(Object viewer) {
+        viewerViews.remove(viewer);
+    }
+
+    /**
+     * Retrieves a completed frame, marking it as most recently used. The
+     * frame must not be modified.
+     *
+     * @param   key     parameters and view of the frame
+     * @return          cached frame; null if none is cached
+     */
+    public BufferedImage get(FrameKey key) {
+        return frames.get(key);
+    }
+
+    /**
+     * Claims the rendering of a frame. If no other worker is rendering it,
+     * the caller must render it and then call complete or abandon;
+     * otherwise the caller can wait for the other worker's render.
+     *
+     * @param   key     parameters and view of the frame
+     * @return          null if the caller should render the frame;
+     *                  otherwise the other worker's render
+     */
+    public CompletableFuture<BufferedImage> claim(FrameKey key) {
+        CompletableFuture<BufferedImage> existing = rendering.putIfAbsent(key,
+            new CompletableFuture<BufferedImage>());
+        if (existing != null) {
+            synchronized (this) {
+                awaited++;
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Stores a completed frame claimed by the caller and hands it to the
+     * workers waiting for it, evicting least recently used frames until
+     * the cache is within its bound. The cache keeps the image itself, so
+     * it must not be modified afterwards.
+     *
+     * @param   key     parameters and view of the frame
+     * @param   frame   completed frame
+     */
+    public void complete(FrameKey key, BufferedImage frame) {
+        frames.put(key, frame);
+        CompletableFuture<BufferedImage> claimed = rendering.remove(key);
+        if (claimed != null) {
+            claimed.complete(frame);
+        }
+    }
+
+    /**
+     * Gives up a frame claimed by the caller, so the workers waiting for
+     * it render it themselves
+     *
+     * @param   key     parameters and view of the frame
+     */
+    public void abandon(FrameKey key) {
+        CompletableFuture<BufferedImage> claimed = rendering.remove(key);
+        if (claimed != null) {
+            claimed.completeExceptionally(
+                new CancellationException("render abandoned"));
+        }
+    }
+
+    /**
+     * Retrieves the number of frames served from the cache or from another
+     * worker's render instead of being rendered
+     *
+     * @return      number of shared frames
+     */
+    public synchronized long getSharedFrames() {
+        return frames.getHits() + awaited;
+    }
+
+    /**
+     * Retrieves the number of cached frames
+     *
+     * @return      number of cached frames
+     */
+    public int size() {
+        return frames.size();
+    }
+
+    /**
+     * Retrieves the number of pixels of a frame
+     *
+     * @param   frame   frame to measure
+     * @return          width times height
+     */
+    private static long pixels(BufferedImage frame) {
+        return (long) frame.getWidth() * frame.getHeight();
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Identifies a frame by everything that determines its pixels
+     */
+    public static final class FrameKey {
+        /** Parameters of the fractal pattern */
+        private final FractalParameters parameters;
+        /** View of the fractal */
+        private final Viewport viewport;
+        /** Whether the frame is drawn with the InstancedRenderer */
+        private final boolean instanced;
+        /** Background RGB value */
+        private final int background;
+
+        /**
+         * Constructor for FrameKey class
+         *
+         * @param   parameters  parameters of the fractal pattern
+         * @param   viewport    view of the fractal
+         * @param   instanced   whether the frame is instanced
+         * @param   background  background RGB value
+         */
+        public FrameKey(FractalParameters parameters, Viewport viewport,
+            boolean instanced, int background) {
+            this.parameters = parameters;
+            this.viewport = viewport;
+            this.instanced = instanced;
+            this.background = background;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FrameKey)) {
+                return false;
+            }
+            FrameKey other = (FrameKey) o;
+            return instanced == other.instanced
+                && background == other.background
+                && parameters.equals(other.parameters)
+                && viewport.equals(other.viewport);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            int result = parameters.hashCode();
+            result = 31 * result + viewport.hashCode();
+            result = 31 * result + Boolean.hashCode(instanced);
+            result = 31 * result + background;
+            return result;
+        }
+    }
+}
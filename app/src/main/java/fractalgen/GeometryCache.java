@@ -0,0 +1,51 @@
+package fractalgen;
+
+/**
+ * Bounded, least-recently-used cache of generated fractal patterns keyed by
+ * how they were generated. The cache is bounded by the total number
+ * of Circles it holds; the most recently used pattern is always kept, even if
+ * it alone exceeds the bound.
+ *
+ * @param   <K>     key identifying how a pattern was generated
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class GeometryCache<K> extends WeightedLruCache<K, CircleBuffer> {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Default maximum number of cached Circles */
+    public static final int DEFAULT_MAX_CIRCLES = 1 << 20;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an empty cache of default capacity.
+     */
+    public GeometryCache() {
+        this(DEFAULT_MAX_CIRCLES);
+    }
+
+    /**
+     * Constructor; sets up an empty cache bounded by a designated number of
+     * Circles. Throws IllegalArgumentException if maxCircles is smaller
+     * than 0.
+     *
+     * @param   maxCircles  maximum number of cached Circles
+     */
+    public GeometryCache(int maxCircles) {
+        super(maxCircles, CircleBuffer::size);
+    }
+
+    /**
+     * Retrieves the number of Circles held across all cached patterns.
+     *
+     * @return      number of cached Circles
+     */
+    public long getCircleCount() {
+        return getWeight();
+    }
+}
@@ -0,0 +1,358 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Whole cactus fractal pattern saved in a compact binary file and read
+ * back through memory mapping, so reopening a deep tree costs a mapping
+ * rather than a regeneration, and its Circles stay off the Java heap.
+ *
+ * The file is little-endian. A HEADER_BYTES header holds the magic number,
+ * the format version, the recursion depth, the radius ratio, the angle
+ * increment in radians, the cactus and pear RGB values and the number of
+ * Circles. It is followed by one RECORD_BYTES record per Circle: the x and
+ * y coordinates of its center and its size as floats, then its level as a
+ * byte. Records are in the order FractalGenerator.walk visits them, parent
+ * before children, so a subtree rooted on a level occupies a known number
+ * of consecutive records and can be skipped as a whole.
+ *
+ * Coordinates are stored as floats, so a GeometryFile is accurate up to
+ * about MAX_SCALE pixels per fractal unit.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class GeometryFile {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** First four bytes of every geometry file, "FGEO" */
+    public static final int MAGIC = 0x4647454f;
+    /** Version of the file format */
+    public static final int FORMAT_VERSION = 1;
+    /** Size of the header in bytes */
+    public static final int HEADER_BYTES = 64;
+    /** Size of the record of one Circle in bytes */
+    public static final int RECORD_BYTES = CircleBuffer.BYTES_PER_CIRCLE;
+    /** Largest magnification the stored coordinates are accurate at */
+    public static final double MAX_SCALE = 1e4;
+    /** Largest difference in radians between angles considered equal */
+    private static final double ANGLE_TOLERANCE = 1e-12;
+    /** Largest number of records in one mapped segment */
+    private static final int RECORDS_PER_SEGMENT = 
+        (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+    /** Size of the buffer Circles are written through when saving */
+    private static final int WRITE_BUFFER_BYTES = RECORD_BYTES * 65536;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Parameters the Circles were generated with */
+    private final FractalParameters parameters;
+    /** Number of Circles in the file */
+    private final long count;
+    /** Mapped records, each segment holding RECORDS_PER_SEGMENT Circles */
+    private final MappedByteBuffer[] segments;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for GeometryFile class
+     *
+     * @param   parameters  parameters the Circles were generated with
+     * @param   count       number of Circles in the file
+     * @param   segments    mapped records
+     */
+    private GeometryFile(FractalParameters parameters, long count,
+        MappedByteBuffer[] segments) {
+        this.parameters = parameters;
+        this.count = count;
+        this.segments = segments;
+    }
+
+    /**
+     * Generates the whole fractal pattern for a set of parameters and
+     * writes it to a file, replacing the file if it exists. Circles are
+     * written as they are generated, so memory use does not depend on
+     * the recursion depth.
+     *
+     * @param   generator   walks the Circles of the fractal pattern
+     * @param   parameters  parameters of the fractal pattern
+     * @param   file        file to write
+     * @throws  IOException if the file cannot be written
+     */
+    public static void save(FractalGenerator generator, 
+        FractalParameters parameters, Path file) throws IOException {
+        int depth = parameters.getRecursionDepth();
+        try (FileChannel channel = FileChannel.open(file, 
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(depth)
+                .putInt(parameters.getRadiusRatio())
+                .putDouble(parameters.getAngleIncrement())
+                .putInt(parameters.getCactusColor().getRGB())
+                .putInt(parameters.getPearColor().getRGB())
+                .putLong((1L << depth) - 1);
+            header.clear();
+            writeFully(channel, header);
+
+            ByteBuffer records = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                generator.walk(parameters, (x, y, diameter, level) -> {
+                    if (records.remaining() < RECORD_BYTES) {
+                        records.flip();
+                        writeFully(channel, records);
+                        records.clear();
+                    }
+                    records.putFloat((float) x)
+                        .putFloat((float) y)
+                        .putFloat((float) diameter)
+                        .put((byte) level);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            records.flip();
+            writeFully(channel, records);
+        }
+    }
+
+    /**
+     * Opens a file written by save. The records are mapped rather than
+     * read, so opening takes about the same time whatever the file size.
+     * Throws IOException if the file is not a geometry file of this format
+     * version.
+     *
+     * @param   file    file to open
+     * @return          the opened file
+     * @throws  IOException if the file cannot be read
+     */
+    public static GeometryFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, 
+            StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(file + ": not a geometry file");
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(file + ": format version " + version);
+            }
+            int depth = header.getInt();
+            int radiusRatio = header.getInt();
+            double angleIncrement = header.getDouble();
+            Color cactusColor = new Color(header.getInt(), true);
+            Color pearColor = new Color(header.getInt(), true);
+            long count = header.getLong();
+            if (depth < 0 || depth > FractalGenerator.MAX_DEPTH 
+                || count != (1L << depth) - 1
+                || channel.size() < HEADER_BYTES + count * RECORD_BYTES) {
+                throw new IOException(file + ": truncated or corrupt");
+            }
+
+            // a mapping stays valid after its channel is closed
+            int segmentCount = (int) ((count + RECORDS_PER_SEGMENT - 1) 
+                / RECORDS_PER_SEGMENT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int segment = 0; segment < segmentCount; segment++) {
+                long first = (long) segment * RECORDS_PER_SEGMENT;
+                long records = Math.min(RECORDS_PER_SEGMENT, count - first);
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+                segments[segment].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new GeometryFile(new FractalParameters(depth, radiusRatio,
+                angleIncrement, cactusColor, pearColor), count, segments);
+        }
+    }
+
+    /**
+     * Retrieves the parameters the Circles were generated with
+     *
+     * @return      parameters of the fractal pattern
+     */
+    public FractalParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Retrieves the number of Circles in the file
+     *
+     * @return      number of Circles
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Retrieves the x-coordinate of the center of the Circle at an index
+     *
+     * @param   index   index of the Circle
+     * @return          x-coordinate in fractal units
+     */
+    public float getX(long index) {
+        return segment(index).getFloat(offset(index));
+    }
+
+    /**
+     * Retrieves the y-coordinate of the center of the Circle at an index
+     *
+     * @param   index   index of the Circle
+     * @return          y-coordinate in fractal units
+     */
+    public float getY(long index) {
+        return segment(index).getFloat(offset(index) + Float.BYTES);
+    }
+
+    /**
+     * Retrieves the height and width of the Circle at an index
+     *
+     * @param   index   index of the Circle
+     * @return          size in fractal units
+     */
+    public float getSize(long index) {
+        return segment(index).getFloat(offset(index) + 2 * Float.BYTES);
+    }
+
+    /**
+     * Retrieves the level in the fractal of the Circle at an index
+     *
+     * @param   index   index of the Circle
+     * @return          level of the Circle; 0 is the root
+     */
+    public int getLevel(long index) {
+        return segment(index).get(offset(index) + 3 * Float.BYTES);
+    }
+
+    /**
+     * Checks whether this file holds the geometry for a set of
+     * parameters. Colors are not compared, since they are applied when
+     * drawing. Angles are compared with a tolerance, since the Gui sets
+     * them in degrees.
+     *
+     * @param   other   parameters to compare with
+     * @return          true if the Circles would be the same, false
+     *                  otherwise
+     */
+    public boolean hasGeometryOf(FractalParameters other) {
+        return other.getRecursionDepth() == parameters.getRecursionDepth()
+            && other.getRadiusRatio() == parameters.getRadiusRatio()
+            && Math.abs(other.getAngleIncrement() 
+            - parameters.getAngleIncrement()) <= ANGLE_TOLERANCE;
+    }
+
+    /**
+     * Selects the Circles of the first levels that are visible in a
+     * Viewport, reading them straight from the mapping. Like
+     * FractalGenerator.getData, subtrees outside the Viewport are skipped
+     * and subtrees narrower than Viewport.MIN_PIXEL_SIZE are added as a
+     * single Circle covering them, so only the visible detail is read.
+     * Throws CancellationException if the calling thread is interrupted.
+     *
+     * @param   viewport    visible area of the fractal pattern
+     * @param   levels      largest number of levels to select
+     * @param   fractal     buffer receiving the Circles, in pixel
+     *                      coordinates of the Viewport
+     */
+    public void select(Viewport viewport, int levels, CircleBuffer fractal) {
+        int depth = Math.min(levels, parameters.getRecursionDepth());
+        if (depth <= 0) {
+            return;
+        }
+        TreeLayout layout = new TreeLayout(depth, parameters.getRadiusRatio(),
+            parameters.getAngleIncrement());
+        int fileDepth = parameters.getRecursionDepth();
+        double scale = viewport.getScale();
+        // records are in walk order, so the next node popped is the record
+        // after the current one if the walk entered its subtree, and the
+        // record after the whole subtree otherwise
+        WalkStack stack = new WalkStack(depth + 1);
+        long index = 0;
+        int top = stack.start(layout);
+        while (top > 0) {
+            top--;
+            int level = stack.level[top];
+            long subtree = (1L << (fileDepth - level)) - 1;
+            double pixelX = viewport.toPixelX(getX(index));
+            double pixelY = viewport.toPixelY(getY(index));
+            double reach = layout.reaches[level] * scale;
+            if (!viewport.intersects(pixelX, pixelY, reach)) {
+                index += subtree;
+                continue;
+            }
+            if (level + 1 == depth || 2 * reach < Viewport.MIN_PIXEL_SIZE) {
+                fractal.add((float) pixelX, (float) pixelY, 
+                    (float) (2 * reach), level);
+                index += subtree;
+                continue;
+            }
+            fractal.add((float) pixelX, (float) pixelY, 
+                (float) (getSize(index) * scale), level);
+            top = stack.pushChildren(layout, top, stack.x[top], stack.y[top],
+                stack.cos[top], stack.sin[top], level);
+            index++;
+        }
+    }
+
+    /**
+     * Finds the mapped segment holding the Circle at an index. Throws
+     * IndexOutOfBoundsException if the index is not a legal index of this
+     * file.
+     *
+     * @param   index   index of the Circle
+     * @return          segment holding the Circle's record
+     */
+    private MappedByteBuffer segment(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    /**
+     * Finds the position of the record of a Circle within its segment
+     *
+     * @param   index   index of the Circle
+     * @return          byte offset of the record in its segment
+     */
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel, reporting
+     * failures as UncheckedIOException so it can be used from a CircleSink
+     *
+     * @param   channel     channel to write to
+     * @param   buffer      bytes to write
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package fractalgen;
+
 import java.awt.GridLayout;
 import java.awt.Color;
 import javax.swing.JFrame;
@@ -22,6 +24,23 @@ import java.awt.event.ActionListener;
  */
 public class Gui extends JFrame {
 
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Smallest recursion depth the Gui offers */
+    public static final int MIN_DEPTH = 2;
+    /** Smallest child to parent radius ratio the Gui offers */
+    public static final int MIN_RADIUS_RATIO = 40;
+    /** Largest child to parent radius ratio the Gui offers */
+    public static final int MAX_RADIUS_RATIO = 70;
+    /** Smallest children angle the Gui offers, in degrees */
+    public static final double MIN_ANGLE = 30.0;
+    /** Largest children angle the Gui offers, in degrees */
+    public static final double MAX_ANGLE = 90.0;
+    /** Decimal places of a children angle shown by the Gui; converting
+     *  degrees to radians and back is not exact */
+    private static final double ANGLE_PRECISION = 1e9;
+
     //----------------------------------------------------------------
     //      INSTANCE DATA
     //----------------------------------------------------------------
@@ -43,6 +62,9 @@ public class Gui extends JFrame {
     private JSpinner radiusRatio;
     /** Angle from parent to child Circles */
     private JSpinner childrenAngle;
+    /** Whether setParameters is filling the components, so that their
+     *  listeners do not push each intermediate set of values */
+    private boolean filling;
 
     //----------------------------------------------------------------
     //      CONSTRUCTORS
@@ -139,7 +161,8 @@ public class Gui extends JFrame {
 
         // set up recursionDepth spinner
         contentPane.add(new JLabel("Recursion depth"));
-        recursionDepth = new JSpinner(new SpinnerNumberModel(2, 2, 10, 1));
+        recursionDepth = new JSpinner(new SpinnerNumberModel(MIN_DEPTH, 
+            MIN_DEPTH, FractalGenerator.MAX_DEPTH, 1));
         contentPane.add(recursionDepth);
         recursionDepth.addChangeListener(new ChangeListener() {
             /**
@@ -156,7 +179,8 @@ public class Gui extends JFrame {
 
         // set up radiusRatio spinner
         contentPane.add(new JLabel("Child to Parent Radius Ratio "));
-        radiusRatio = new JSpinner(new SpinnerNumberModel(40, 40, 70, 1));
+        radiusRatio = new JSpinner(new SpinnerNumberModel(MIN_RADIUS_RATIO, 
+            MIN_RADIUS_RATIO, MAX_RADIUS_RATIO, 1));
         contentPane.add(radiusRatio);
         radiusRatio.addChangeListener(new ChangeListener() {
             /**
@@ -173,8 +197,8 @@ public class Gui extends JFrame {
 
         // set up childrenAngle spinner
         contentPane.add(new JLabel("Children angle"));
-        childrenAngle = new JSpinner(new SpinnerNumberModel(45.0, 30.0, 
-            90.0, 1.0));
+        childrenAngle = new JSpinner(new SpinnerNumberModel(45.0, MIN_ANGLE, 
+            MAX_ANGLE, 1.0));
         contentPane.add(childrenAngle);
         childrenAngle.addChangeListener(new ChangeListener() {
             /**
@@ -196,11 +220,84 @@ public class Gui extends JFrame {
         setVisible(true);
     }
 
+    /**
+     * Checks that a set of parameters can be shown in the user input
+     * components. Throws IllegalArgumentException naming the first value
+     * outside the range of its component.
+     *
+     * @param   parameters  parameters to check
+     */
+    public static void checkParameters(FractalParameters parameters) {
+        int depth = parameters.getRecursionDepth();
+        if (depth < MIN_DEPTH || depth > FractalGenerator.MAX_DEPTH) {
+            throw new IllegalArgumentException("recursion depth " + depth 
+                + " is outside " + MIN_DEPTH + ".." 
+                + FractalGenerator.MAX_DEPTH);
+        }
+        int ratio = parameters.getRadiusRatio();
+        if (ratio < MIN_RADIUS_RATIO || ratio > MAX_RADIUS_RATIO) {
+            throw new IllegalArgumentException("radius ratio " + ratio 
+                + " is outside " + MIN_RADIUS_RATIO + ".." + MAX_RADIUS_RATIO);
+        }
+        double angle = degreesOf(parameters);
+        if (!(angle >= MIN_ANGLE && angle <= MAX_ANGLE)) {
+            throw new IllegalArgumentException("children angle " + angle 
+                + " is outside " + MIN_ANGLE + ".." + MAX_ANGLE);
+        }
+    }
+
+    /**
+     * Shows a set of parameters in the user input components and pushes
+     * them to the provided Subject once. Must be called on the event
+     * dispatch thread. Throws IllegalArgumentException if a value is
+     * outside the range of its component; see checkParameters.
+     *
+     * @param   parameters  parameters to show
+     */
+    public void setParameters(FractalParameters parameters) {
+        checkParameters(parameters);
+        // each spinner notifies its listener; push the values once, after
+        // all of them are shown
+        filling = true;
+        try {
+            cactusColor.setColor(parameters.getCactusColor());
+            cactusColorDisplay.setBackground(parameters.getCactusColor());
+            cactusColorDisplay.setText("#"+Integer.toHexString(
+                parameters.getCactusColor().getRGB()).substring(2));
+            pearColor.setColor(parameters.getPearColor());
+            pearColorDisplay.setBackground(parameters.getPearColor());
+            pearColorDisplay.setText("#"+Integer.toHexString(
+                parameters.getPearColor().getRGB()).substring(2));
+            recursionDepth.setValue(parameters.getRecursionDepth());
+            radiusRatio.setValue(parameters.getRadiusRatio());
+            childrenAngle.setValue(degreesOf(parameters));
+        } finally {
+            filling = false;
+        }
+        submit();
+    }
+
+    /**
+     * Converts the children angle of a set of parameters to degrees,
+     * rounded so that angles saved from whole degrees read back whole
+     *
+     * @param   parameters  parameters holding the angle
+     * @return              children angle in degrees
+     */
+    private static double degreesOf(FractalParameters parameters) {
+        return Math.round(Math.toDegrees(parameters.getAngleIncrement()) 
+            * ANGLE_PRECISION) / ANGLE_PRECISION;
+    }
+
     /**
      * Retrieves data from user input components and pushes the retrieved 
-     * data to the provided Subject
+     * data to the provided Subject. Does nothing while setParameters is
+     * filling the components.
      */
     private void submit() {
+        if (filling) {
+            return;
+        }
         int recursionDepthVal = (int) recursionDepth.getValue();
         int radiusVal = (int) radiusRatio.getValue();
         double startingAngleVal = (double) childrenAngle.getValue();
@@ -0,0 +1,215 @@
+package fractalgen;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the cactus fractal by instancing rather than by drawing every
+ * Circle. A subtree only depends on the level of its root, up to rotation
+ * and translation, so each level's subtree is drawn once into a sprite,
+ * built from two rotated copies of the next level's sprite, and stamped
+ * wherever the tree reaches that level. Building the sprites and stamping
+ * them costs time linear in the depth, however deep the tree is.
+ *
+ * Levels whose sprites would be larger than MAX_SPRITE_SIZE, as happens
+ * when zoomed in, are walked Circle by Circle, skipping subtrees outside
+ * the image, until a level small enough for a sprite is reached. Sprites
+ * are kept until the parameters or magnification change, so panning only
+ * stamps them again.
+ *
+ * Stamping resamples the sprites with bilinear interpolation, so edges are
+ * softer than those of CircleBuffer.draw and deep levels are slightly
+ * blurred.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class InstancedRenderer {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Largest width and height of a sprite in pixels */
+    public static final int MAX_SPRITE_SIZE = 1024;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Parameters the sprites were drawn for */
+    private FractalParameters spriteParameters;
+    /** Magnification the sprites were drawn at */
+    private double spriteScale;
+    /** Subtree sprite of each level; null for levels walked instead */
+    private BufferedImage[] sprites;
+
+    /**
+     * Draws the fractal over the contents of an image. Must not be called
+     * from several threads at once. Throws CancellationException if the
+     * calling thread is interrupted.
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   viewport    view of the fractal the image shows
+     * @param   palette     colors of the levels of the fractal
+     * @param   image       image to draw on
+     */
+    public void draw(FractalParameters parameters, Viewport viewport,
+        Palette palette, BufferedImage image) {
+        int depth = parameters.getRecursionDepth();
+        if (depth == 0) {
+            return;
+        }
+        TreeLayout layout = new TreeLayout(depth, parameters.getRadiusRatio(),
+            parameters.getAngleIncrement());
+        double scale = viewport.getScale();
+        if (!parameters.equals(spriteParameters) || scale != spriteScale) {
+            sprites = buildSprites(layout, scale, palette);
+            spriteParameters = parameters;
+            spriteScale = scale;
+        }
+
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            walk(g, layout, viewport, palette);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Walks the levels too large for sprites depth first, drawing their
+     * Circles and stamping the sprites of the first level that has one.
+     * Throws CancellationException if the calling thread is interrupted.
+     *
+     * @param   g           graphics drawing on the image
+     * @param   layout      sizes and angles of the tree
+     * @param   viewport    view of the fractal the image shows
+     * @param   palette     colors of the levels of the fractal
+     */
+    private void walk(Graphics2D g, TreeLayout layout, Viewport viewport,
+        Palette palette) {
+        double scale = viewport.getScale();
+        WalkStack stack = new WalkStack(layout.depth + 1);
+        int top = stack.start(layout);
+        while (top > 0) {
+            top--;
+            double x = stack.x[top];
+            double y = stack.y[top];
+            double cos = stack.cos[top];
+            double sin = stack.sin[top];
+            int level = stack.level[top];
+            double pixelX = viewport.toPixelX(x);
+            double pixelY = viewport.toPixelY(y);
+            if (!viewport.intersects(pixelX, pixelY, 
+                layout.reaches[level] * scale)) {
+                continue;
+            }
+            if (sprites[level] != null) {
+                stamp(g, sprites[level], pixelX, pixelY, cos, sin);
+                continue;
+            }
+            fillCircle(g, palette, level, pixelX, pixelY, 
+                layout.sizes[level] * scale);
+            top = stack.pushChildren(layout, top, x, y, cos, sin, level);
+        }
+    }
+
+    /**
+     * Draws the sprite of every level small enough for one, from the
+     * deepest level up. Each sprite shows its level's subtree with the
+     * root in the middle, pointing in the starting direction.
+     *
+     * @param   layout  sizes and angles of the tree
+     * @param   scale   pixels per fractal unit
+     * @param   palette colors of the levels of the fractal
+     * @return          sprite of each level; null for levels too large
+     */
+    private static BufferedImage[] buildSprites(TreeLayout layout, 
+        double scale, Palette palette) {
+        BufferedImage[] result = new BufferedImage[layout.depth];
+        double startCos = Math.cos(FractalGenerator.STARTING_ANGLE);
+        double startSin = Math.sin(FractalGenerator.STARTING_ANGLE);
+        for (int level = layout.depth - 1; level >= 0; level--) {
+            // checked in double, as the reach of a level walked when zoomed
+            // in can exceed the int range
+            double reach = Math.ceil(layout.reaches[level] * scale);
+            if (2 * reach + 2 > MAX_SPRITE_SIZE) {
+                break;
+            }
+            int side = 2 * (int) reach + 2;
+            BufferedImage sprite = new BufferedImage(side, side,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = sprite.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                double center = side / 2.0;
+                fillCircle(g, palette, level, center, center, 
+                    layout.sizes[level] * scale);
+                if (level + 1 < layout.depth) {
+                    double hypotenuse = layout.hypotenuses[level] * scale;
+                    // left subtree first, so it is covered by the right
+                    // one as when drawing Circle by Circle
+                    double leftCos = layout.leftCos(startCos, startSin);
+                    double leftSin = layout.leftSin(startCos, startSin);
+                    stamp(g, result[level + 1], center - leftCos * hypotenuse,
+                        center - leftSin * hypotenuse, leftCos, leftSin);
+                    double rightCos = layout.rightCos(startCos, startSin);
+                    double rightSin = layout.rightSin(startCos, startSin);
+                    stamp(g, result[level + 1], center - rightCos * hypotenuse,
+                        center - rightSin * hypotenuse, rightCos, rightSin);
+                }
+            } finally {
+                g.dispose();
+            }
+            result[level] = sprite;
+        }
+        return result;
+    }
+
+    /**
+     * Draws a sprite centered on a point, rotated from the starting
+     * direction to a designated direction
+     *
+     * @param   g       graphics to draw the sprite with
+     * @param   sprite  sprite of a subtree
+     * @param   x       x-coordinate of the subtree root in pixels
+     * @param   y       y-coordinate of the subtree root in pixels
+     * @param   cos     cosine of the direction of the subtree root
+     * @param   sin     sine of the direction of the subtree root
+     */
+    private static void stamp(Graphics2D g, BufferedImage sprite, double x,
+        double y, double cos, double sin) {
+        double startCos = Math.cos(FractalGenerator.STARTING_ANGLE);
+        double startSin = Math.sin(FractalGenerator.STARTING_ANGLE);
+        // rotation by the angle between the starting and the root direction
+        double rotationCos = cos * startCos + sin * startSin;
+        double rotationSin = sin * startCos - cos * startSin;
+        double center = sprite.getWidth() / 2.0;
+        AffineTransform transform = new AffineTransform(rotationCos, 
+            rotationSin, -rotationSin, rotationCos, x, y);
+        transform.translate(-center, -center);
+        g.drawImage(sprite, transform, null);
+    }
+
+    /**
+     * Fills a single Circle the way CircleBuffer.draw does, including
+     * Circles too large for int pixel coordinates when zoomed in
+     *
+     * @param   g           graphics to fill the Circle with
+     * @param   palette     colors of the levels of the fractal
+     * @param   level       level of the Circle
+     * @param   x           x-coordinate of the Circle center in pixels
+     * @param   y           y-coordinate of the Circle center in pixels
+     * @param   size        diameter of the Circle in pixels
+     */
+    private static void fillCircle(Graphics2D g, Palette palette, int level,
+        double x, double y, double size) {
+        g.setColor(palette.getColor(level));
+        CircleBuffer.fillOval(g, CircleBuffer.round(x - size / 2), 
+            CircleBuffer.round(y - size / 2), CircleBuffer.round(size));
+    }
+}
@@ -0,0 +1,92 @@
+package fractalgen;
+
+import java.nio.file.Paths;
+import javax.swing.SwingUtilities;
+
+/**
+ * Main class which establishes the introduction between Subject and Observers
+ * while also instantiating the Gui for user input and the Display for visualizing
+ * the generated fractal patterns
+ *
+ * @author  Joshua Scheck
+ * @since   2020-08-20
+ */
+public class Main {
+    /** Graphics panel for displaying fractal pattern */
+    private static Observer display;
+    /** Generates fractal patterns */
+    private static Subject fractalGenerator;
+    /** Graphical user interface for manipulating fractal pattern parameters */
+    private static Gui gui;
+
+    /**
+     * Entry point for application. With --headless, renders a parameter
+     * sweep to PNG files instead of opening the windows; see
+     * BatchRenderer.USAGE for the options. With --open FILE, opens the
+     * windows showing a fractal pattern saved as a GeometryFile. With
+     * --farm, renders one large image on worker processes started with
+     * --farm-worker; see RenderFarm.USAGE for the options. With --serve,
+     * serves PNG tiles over HTTP; see TileServer.USAGE.
+     *
+     * @param   args    supplied command line arguments
+     */
+    public static void main(String[] args) throws Exception {
+        GeometryFile geometry = null;
+        if (args.length == 2 && args[0].equals("--open")) {
+            geometry = GeometryFile.open(Paths.get(args[1]));
+            try {
+                Gui.checkParameters(geometry.getParameters());
+            } catch (IllegalArgumentException e) {
+                System.err.println(args[1] + ": " + e.getMessage() 
+                    + "; the Gui cannot show this pattern");
+                System.exit(1);
+            }
+        } else if (args.length == 2 && args[0].equals("--farm-worker")) {
+            new FarmWorker(args[1]).run();
+            return;
+        } else if (args.length > 0 && args[0].equals("--serve")) {
+            System.setProperty("java.awt.headless", "true");
+            try {
+                new TileServer(args).start();
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println(TileServer.USAGE);
+                System.exit(1);
+            }
+            return;
+        } else if (args.length > 0 && args[0].equals("--farm")) {
+            System.setProperty("java.awt.headless", "true");
+            try {
+                new RenderFarm(args).run();
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println(RenderFarm.USAGE);
+                System.exit(1);
+            }
+            return;
+        } else if (args.length > 0) {
+            if (!args[0].equals("--headless")) {
+                System.err.println(BatchRenderer.USAGE);
+                System.exit(1);
+            }
+            System.setProperty("java.awt.headless", "true");
+            try {
+                new BatchRenderer(args).run();
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println(BatchRenderer.USAGE);
+                System.exit(1);
+            }
+            return;
+        }
+        FractalGenerator generator = new FractalGenerator();
+        fractalGenerator = generator;
+        gui = new Gui(fractalGenerator);
+        display = new Display(fractalGenerator);
+        if (geometry != null) {
+            generator.attach(geometry);
+            FractalParameters parameters = geometry.getParameters();
+            SwingUtilities.invokeLater(() -> gui.setParameters(parameters));
+        }
+    }
+}
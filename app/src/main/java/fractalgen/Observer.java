@@ -1,3 +1,5 @@
+package fractalgen;
+
 /**
  * Requirements for Observers
  *
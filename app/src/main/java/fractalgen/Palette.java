@@ -0,0 +1,90 @@
+package fractalgen;
+
+import java.awt.Color;
+
+/**
+ * Immutable mapping from the level of a Circle in the fractal to the color
+ * it is drawn with. Generated Circles only record their level, so changing
+ * colors only requires drawing the same Circles with a different Palette.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public final class Palette {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Color of each level */
+    private final Color[] colors;
+    /** RGB value of each level */
+    private final int[] rgb;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for Palette class. Throws IllegalArgumentException if a
+     * color is null.
+     *
+     * @param   colors  color of each level; the first is the root's
+     */
+    public Palette(Color[] colors) {
+        this.colors = colors.clone();
+        rgb = new int[colors.length];
+        for (int level = 0; level < colors.length; level++) {
+            if (colors[level] == null) {
+                throw new IllegalArgumentException("color of level " + level);
+            }
+            rgb[level] = colors[level].getRGB();
+        }
+    }
+
+    /**
+     * Creates the Palette of a cactus: every level is the cactus color,
+     * except for the tips on the last level, which are the pear color.
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @return              Palette with one color per level
+     */
+    public static Palette of(FractalParameters parameters) {
+        int depth = parameters.getRecursionDepth();
+        Color[] colors = new Color[depth];
+        for (int level = 0; level < depth - 1; level++) {
+            colors[level] = parameters.getCactusColor();
+        }
+        if (depth > 0) {
+            colors[depth - 1] = parameters.getPearColor();
+        }
+        return new Palette(colors);
+    }
+
+    /**
+     * Retrieves the number of levels this Palette has colors for
+     *
+     * @return      number of levels
+     */
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * Retrieves the color of a level
+     *
+     * @param   level   level in the fractal; 0 is the root
+     * @return          color of the level
+     */
+    public Color getColor(int level) {
+        return colors[level];
+    }
+
+    /**
+     * Retrieves the RGB value of the color of a level
+     *
+     * @param   level   level in the fractal; 0 is the root
+     * @return          RGB value of the level's color
+     */
+    public int getRGB(int level) {
+        return rgb[level];
+    }
+}
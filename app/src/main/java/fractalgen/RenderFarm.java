@@ -0,0 +1,585 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Renders one large fractal pattern on several worker processes. The
+ * coordinator splits the image into square tiles, starts the workers as
+ * separate JVMs that connect back over a local socket, hands each idle
+ * worker the next tile and stitches the returned pixels into the image.
+ * A tile whose worker fails, disconnects or times out is handed to
+ * another worker while one is connected, up to a number of attempts.
+ *
+ * The protocol is big-endian, as written by DataOutputStream. A worker
+ * opens the connection and sends MAGIC and PROTOCOL_VERSION. The
+ * coordinator then sends messages starting with a type byte:
+ * REQUEST_TILE is followed by the tile id, the recursion depth, radius
+ * ratio, angle increment in radians, cactus, pear and background RGB
+ * values, the center and scale of the whole image, its width and height,
+ * and the tile's left, top, width and height; REQUEST_SHUTDOWN has no
+ * body. The worker answers each tile with its id and a status; STATUS_OK
+ * is followed by the tile's width, height and RGB pixels row by row, and
+ * STATUS_FAILED by a message. Nothing in the protocol assumes the
+ * processes share a machine, so workers started elsewhere may connect to
+ * the coordinator's port as well.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class RenderFarm {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Command line usage of the render farm */
+    public static final String USAGE = String.join(System.lineSeparator(),
+        "usage: java fractalgen.Main --farm [options]",
+        "  --workers N                  worker processes (default: processors)",
+        "  --tile N                     tile width and height (default 512)",
+        "  --retries N                  attempts per tile (default 3)",
+        "  --port N                     coordinator port (default: any free)",
+        "  --depth N                    recursion depth (default 20)",
+        "  --ratio N                    child to parent radius ratio (default 60)",
+        "  --angle DEGREES              children angle (default 45)",
+        "  --cactus COLOR               cactus color (default green)",
+        "  --pear COLOR                 pear color (default pink)",
+        "  --size WIDTHxHEIGHT          image size in pixels (default 8000x8000)",
+        "  --scale SCALE                pixels per fractal unit (default 14)",
+        "  --background COLOR           background color (default #ffffff)",
+        "  --out FILE                   PNG file to write (default cactus.png)");
+    /** First value sent by a worker on a new connection, "FARM" */
+    static final int MAGIC = 0x4641524d;
+    /** Version of the protocol */
+    static final int PROTOCOL_VERSION = 1;
+    /** Message asking a worker to render a tile */
+    static final byte REQUEST_TILE = 1;
+    /** Message asking a worker to exit */
+    static final byte REQUEST_SHUTDOWN = 2;
+    /** Answer carrying a rendered tile */
+    static final int STATUS_OK = 0;
+    /** Answer reporting a tile that could not be rendered */
+    static final int STATUS_FAILED = 1;
+    /** Time a worker may take to connect, in milliseconds */
+    private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+    /** Time a worker may take to answer a tile, in milliseconds */
+    private static final int TILE_TIMEOUT_MILLIS = 120000;
+    /** Time an idle connection waits between checks for completion */
+    private static final long POLL_MILLIS = 100;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of worker processes to start */
+    private int workers = Runtime.getRuntime().availableProcessors();
+    /** Width and height of a tile in pixels */
+    private int tileSize = 512;
+    /** Number of times a tile is attempted before it is given up */
+    private int attempts = 3;
+    /** Port the coordinator listens on; 0 for any free port */
+    private int port;
+    /** Recursion depth of the fractal pattern */
+    private int depth = 20;
+    /** Ratio of child to parent radius */
+    private int ratio = 60;
+    /** Angle from parent to child Circles, in degrees */
+    private double angle = 45;
+    /** Color of the cactus body */
+    private Color cactusColor = Color.green;
+    /** Color of the cactus tips */
+    private Color pearColor = Color.PINK;
+    /** Width of the image in pixels */
+    private int width = 8000;
+    /** Height of the image in pixels */
+    private int height = 8000;
+    /** Pixels per fractal unit */
+    private double scale = 14;
+    /** Background color of the image */
+    private Color background = Color.white;
+    /** File the image is written to */
+    private File output = new File("cactus.png");
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up a render farm from command line arguments.
+     * Throws IllegalArgumentException if an argument is not understood,
+     * if the ratio or angle is outside the range the Gui accepts, or if
+     * the scale is not positive, so a bad value is reported before any
+     * worker is started.
+     *
+     * @param   args    command line arguments, as described by USAGE
+     */
+    public RenderFarm(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--farm")) {
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--workers":
+                    workers = Integer.parseInt(value);
+                    if (workers < 1) {
+                        throw new IllegalArgumentException("workers: " + value);
+                    }
+                    break;
+                case "--tile":
+                    tileSize = Integer.parseInt(value);
+                    if (tileSize < 1) {
+                        throw new IllegalArgumentException("tile: " + value);
+                    }
+                    break;
+                case "--retries":
+                    attempts = Integer.parseInt(value);
+                    if (attempts < 1) {
+                        throw new IllegalArgumentException("retries: " + value);
+                    }
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(value);
+                    if (depth < 0 || depth > FractalGenerator.MAX_DEPTH) {
+                        throw new IllegalArgumentException("depth: " + value);
+                    }
+                    break;
+                case "--ratio":
+                    ratio = Integer.parseInt(value);
+                    if (ratio < Gui.MIN_RADIUS_RATIO 
+                        || ratio > Gui.MAX_RADIUS_RATIO) {
+                        throw new IllegalArgumentException("ratio: " + value);
+                    }
+                    break;
+                case "--angle":
+                    angle = Double.parseDouble(value);
+                    if (!(angle >= Gui.MIN_ANGLE && angle <= Gui.MAX_ANGLE)) {
+                        throw new IllegalArgumentException("angle: " + value);
+                    }
+                    break;
+                case "--cactus":
+                    cactusColor = Color.decode(value);
+                    break;
+                case "--pear":
+                    pearColor = Color.decode(value);
+                    break;
+                case "--size":
+                    String[] dimensions = value.split("x");
+                    if (dimensions.length != 2) {
+                        throw new IllegalArgumentException("size: " + value);
+                    }
+                    width = Integer.parseInt(dimensions[0]);
+                    height = Integer.parseInt(dimensions[1]);
+                    if (width <= 0 || height <= 0) {
+                        throw new IllegalArgumentException("size: " + value);
+                    }
+                    break;
+                case "--scale":
+                    scale = Double.parseDouble(value);
+                    if (!(scale > 0) || Double.isInfinite(scale)) {
+                        throw new IllegalArgumentException("scale: " + value);
+                    }
+                    break;
+                case "--background":
+                    background = Color.decode(value);
+                    break;
+                case "--out":
+                    output = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+    }
+
+    /**
+     * Renders the image on the worker processes, writes it and reports
+     * the time taken on standard output. Throws IOException if any tile
+     * could not be rendered in the allowed number of attempts.
+     *
+     * @throws  IOException             if the workers cannot be started or
+     *                                  the image cannot be rendered or
+     *                                  written
+     * @throws  InterruptedException    if interrupted while waiting for
+     *                                  the workers
+     */
+    public void run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<Tile> pending = new LinkedBlockingQueue<Tile>();
+        for (int top = 0; top < height; top += tileSize) {
+            for (int left = 0; left < width; left += tileSize) {
+                pending.add(new Tile(pending.size(), left, top,
+                    Math.min(tileSize, width - left),
+                    Math.min(tileSize, height - top)));
+            }
+        }
+        Job job = new Job(new FractalParameters(depth, ratio,
+            Math.toRadians(angle), cactusColor, pearColor),
+            new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB),
+            pending);
+
+        List<Process> processes = new ArrayList<Process>();
+        List<Thread> connections = new ArrayList<Thread>();
+        try (ServerSocket server = new ServerSocket(port, workers,
+            InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < workers; i++) {
+                processes.add(startWorker(server.getLocalPort()));
+            }
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int i = 0; i < workers; i++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                Thread thread = new Thread(() -> serve(socket, job),
+                    "farm-connection-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                connections.add(thread);
+            }
+            if (connections.isEmpty()) {
+                throw new IOException("no worker connected");
+            }
+            job.awaitCompletion(connections);
+        } finally {
+            // connections finish their last tile concurrently, so they
+            // share one deadline rather than a timeout each
+            long deadline = System.nanoTime() 
+                + TimeUnit.MILLISECONDS.toNanos(TILE_TIMEOUT_MILLIS);
+            for (Thread connection : connections) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(
+                    deadline - System.nanoTime());
+                if (millis <= 0) {
+                    break;
+                }
+                connection.join(millis);
+            }
+            for (Process process : processes) {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+
+        if (job.failed.get() > 0 || job.remaining.getCount() > 0) {
+            throw new IOException((job.failed.get() + job.remaining.getCount())
+                + " of " + job.tiles + " tiles could not be rendered");
+        }
+        ImageIO.write(job.image, "png", output);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d tiles (%d retried) on %d workers in %.2f s: %s%n",
+            job.tiles, job.retried.get(), connections.size(), seconds, output);
+    }
+
+    /**
+     * Starts a worker process running the same classes as this JVM, told
+     * to connect to the coordinator's port
+     *
+     * @param   coordinatorPort     port the coordinator listens on
+     * @return                      started worker process
+     * @throws  IOException         if the process cannot be started
+     */
+    private static Process startWorker(int coordinatorPort) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java")
+            .toString();
+        ProcessBuilder builder = new ProcessBuilder(java,
+            "-Djava.awt.headless=true",
+            "-cp", System.getProperty("java.class.path"),
+            Main.class.getName(), "--farm-worker",
+            InetAddress.getLoopbackAddress().getHostAddress() + ":"
+            + coordinatorPort);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * Hands tiles to one connected worker until every tile is finished or
+     * the connection fails. A tile that fails is put back for another
+     * attempt, which is left to another worker if one is connected; after
+     * a connection error the connection is abandoned, so a dead worker is
+     * given no further tiles.
+     *
+     * @param   socket  connection to the worker
+     * @param   job     image being rendered
+     */
+    private void serve(Socket socket, Job job) {
+        Tile tile = null;
+        boolean connected = false;
+        try (Socket connection = socket) {
+            connection.setSoTimeout(TILE_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(connection.getOutputStream()));
+            if (in.readInt() != MAGIC || in.readInt() != PROTOCOL_VERSION) {
+                throw new IOException("not a render farm worker");
+            }
+            job.connected.incrementAndGet();
+            connected = true;
+            while (job.remaining.getCount() > 0) {
+                tile = job.next();
+                if (tile == null) {
+                    continue;
+                }
+                writeRequest(out, job.parameters, tile);
+                if (in.readInt() != tile.id) {
+                    throw new IOException("answer for another tile");
+                }
+                if (in.readInt() != STATUS_OK) {
+                    System.err.println("tile " + tile.id + ": " + in.readUTF());
+                    job.retry(tile);
+                    tile = null;
+                    continue;
+                }
+                readPixels(in, job.image, tile);
+                tile = null;
+                job.remaining.countDown();
+            }
+            out.writeByte(REQUEST_SHUTDOWN);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println(Thread.currentThread().getName() + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (connected) {
+                job.connected.decrementAndGet();
+            }
+            if (tile != null) {
+                job.retry(tile);
+            }
+        }
+    }
+
+    /**
+     * Sends a request to render a tile of the image
+     *
+     * @param   out         stream to the worker
+     * @param   parameters  parameters of the fractal pattern
+     * @param   tile        tile to render
+     * @throws  IOException if the request cannot be sent
+     */
+    private void writeRequest(DataOutputStream out, FractalParameters parameters,
+        Tile tile) throws IOException {
+        out.writeByte(REQUEST_TILE);
+        out.writeInt(tile.id);
+        out.writeInt(parameters.getRecursionDepth());
+        out.writeInt(parameters.getRadiusRatio());
+        out.writeDouble(parameters.getAngleIncrement());
+        out.writeInt(parameters.getCactusColor().getRGB());
+        out.writeInt(parameters.getPearColor().getRGB());
+        out.writeInt(background.getRGB());
+        out.writeDouble(0);
+        out.writeDouble(0);
+        out.writeDouble(scale);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(tile.left);
+        out.writeInt(tile.top);
+        out.writeInt(tile.width);
+        out.writeInt(tile.height);
+        out.flush();
+    }
+
+    /**
+     * Reads the pixels of a rendered tile into its place in the image.
+     * Tiles do not overlap, so connections may stitch concurrently.
+     *
+     * @param   in          stream from the worker
+     * @param   image       image being rendered
+     * @param   tile        tile that was rendered
+     * @throws  IOException if the pixels cannot be read or do not match
+     *                      the tile
+     */
+    private static void readPixels(DataInputStream in, BufferedImage image,
+        Tile tile) throws IOException {
+        int tileWidth = in.readInt();
+        int tileHeight = in.readInt();
+        if (tileWidth != tile.width || tileHeight != tile.height) {
+            throw new IOException("tile " + tile.id + ": size " + tileWidth
+                + "x" + tileHeight);
+        }
+        byte[] bytes = new byte[tileWidth * Integer.BYTES];
+        IntBuffer row = ByteBuffer.wrap(bytes).asIntBuffer();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+            .getData();
+        for (int y = 0; y < tileHeight; y++) {
+            in.readFully(bytes);
+            row.clear();
+            row.get(pixels, (tile.top + y) * image.getWidth() + tile.left,
+                tileWidth);
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Rectangle of the image rendered by one worker
+     */
+    static final class Tile {
+        /** Position of the tile in the image, row by row */
+        private final int id;
+        /** Left edge of the tile in pixels */
+        private final int left;
+        /** Top edge of the tile in pixels */
+        private final int top;
+        /** Width of the tile in pixels */
+        private final int width;
+        /** Height of the tile in pixels */
+        private final int height;
+        /** Number of failed attempts to render the tile */
+        private int failures;
+        /** Connection that last failed to render the tile; null if none */
+        private Thread failedOn;
+
+        /**
+         * Constructor for Tile class
+         *
+         * @param   id      position of the tile in the image
+         * @param   left    left edge of the tile in pixels
+         * @param   top     top edge of the tile in pixels
+         * @param   width   width of the tile in pixels
+         * @param   height  height of the tile in pixels
+         */
+        Tile(int id, int left, int top, int width, int height) {
+            this.id = id;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Image being rendered and the progress of its tiles, shared by the
+     * connections
+     */
+    final class Job {
+        /** Parameters of the fractal pattern */
+        private final FractalParameters parameters;
+        /** Image the tiles are stitched into */
+        private final BufferedImage image;
+        /** Tiles waiting for a worker */
+        private final BlockingQueue<Tile> pending;
+        /** Number of tiles in the image */
+        private final int tiles;
+        /** Tiles not yet rendered or given up */
+        final CountDownLatch remaining;
+        /** Number of tiles handed out again after a failure */
+        final AtomicInteger retried = new AtomicInteger();
+        /** Number of tiles given up */
+        final AtomicInteger failed = new AtomicInteger();
+        /** Number of connections serving a worker */
+        final AtomicInteger connected = new AtomicInteger();
+
+        /**
+         * Constructor for Job class
+         *
+         * @param   parameters  parameters of the fractal pattern
+         * @param   image       image the tiles are stitched into
+         * @param   pending     every tile of the image
+         */
+        Job(FractalParameters parameters, BufferedImage image,
+            BlockingQueue<Tile> pending) {
+            this.parameters = parameters;
+            this.image = image;
+            this.pending = pending;
+            tiles = pending.size();
+            remaining = new CountDownLatch(tiles);
+        }
+
+        /**
+         * Takes the next tile for the calling connection, waiting up to
+         * POLL_MILLIS for one. While another connection is serving a
+         * worker, tiles that last failed on the calling connection are
+         * left to the others.
+         *
+         * @return          tile to render; null if none is available
+         * @throws  InterruptedException    if interrupted while waiting
+         */
+        Tile next() throws InterruptedException {
+            Thread connection = Thread.currentThread();
+            Tile tile = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (tile == null || tile.failedOn != connection 
+                || connected.get() <= 1) {
+                return tile;
+            }
+            pending.add(tile);
+            for (Tile other : pending) {
+                // remove fails if another connection took the tile first
+                if (other.failedOn != connection && pending.remove(other)) {
+                    return other;
+                }
+            }
+            // only tiles that failed here are left; give the others time
+            Thread.sleep(POLL_MILLIS);
+            return null;
+        }
+
+        /**
+         * Puts a tile that failed on the calling connection back for
+         * another worker, or gives it up once it has used all its attempts
+         *
+         * @param   tile    tile that failed
+         */
+        void retry(Tile tile) {
+            tile.failedOn = Thread.currentThread();
+            if (++tile.failures < attempts) {
+                retried.incrementAndGet();
+                pending.add(tile);
+            } else {
+                System.err.println("tile " + tile.id + ": giving up after "
+                    + tile.failures + " attempts");
+                failed.incrementAndGet();
+                remaining.countDown();
+            }
+        }
+
+        /**
+         * Waits until every tile is finished, or until no connection is
+         * left to render the remaining ones
+         *
+         * @param   connections     threads serving the workers
+         * @throws  InterruptedException    if interrupted while waiting
+         */
+        private void awaitCompletion(List<Thread> connections)
+            throws InterruptedException {
+            while (!remaining.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (connections.stream().noneMatch(Thread::isAlive)) {
+                    return;
+                }
+            }
+        }
+    }
+}
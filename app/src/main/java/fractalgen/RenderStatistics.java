@@ -0,0 +1,466 @@
+package fractalgen;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Performance statistics of a RenderWorker: time spent per phase, Circle
+ * counts, bytes allocated per frame and a histogram of frame times. The
+ * render thread records; any thread, including JMX clients, may read.
+ *
+ * Each generation pass and each frame is also reported as a JFR event,
+ * so recordings show them alongside GC and thread activity.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class RenderStatistics implements RenderStatisticsMBean {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Upper bounds of the frame time histogram buckets, in milliseconds */
+    private static final long[] FRAME_TIME_BUCKETS_MILLIS = 
+        {1, 2, 4, 8, 16, 33, 50, 100, 250, 500, 1000, 2500};
+    /** Nanoseconds per millisecond */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /** Number of RenderStatistics registered with JMX so far */
+    private static final AtomicInteger REGISTERED = new AtomicInteger();
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Measures bytes allocated by the render thread, if supported */
+    private final com.sun.management.ThreadMXBean allocations;
+    /** Number of frames rendered to full detail */
+    private long framesCompleted;
+    /** Number of frames abandoned for a newer request */
+    private long framesCancelled;
+    /** Number of Circles in the last published frame */
+    private int lastCircleCount;
+    /** Estimated footprint of the last generation pass, in bytes */
+    private long lastEstimatedBytes;
+    /** Whether the last generation pass was streamed */
+    private boolean lastPassStreamed;
+    /** Number of generation passes streamed over the memory budget */
+    private long passesStreamed;
+    /** Generation time of the last completed frame, in nanoseconds */
+    private long lastGenerationNanos;
+    /** Drawing time of the last completed frame, in nanoseconds */
+    private long lastDrawNanos;
+    /** Total time of the last completed frame, in nanoseconds */
+    private long lastFrameNanos;
+    /** Time of the last paint, in nanoseconds */
+    private long lastPaintNanos;
+    /** Total time of all completed frames, in nanoseconds */
+    private long totalFrameNanos;
+    /** Bytes allocated for the last completed frame; -1 if unknown */
+    private long lastAllocatedBytes;
+    /** Number of completed frames per frame time bucket */
+    private final long[] histogram;
+    /** Name registered with the platform MBean server; null if none */
+    private ObjectName name;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for RenderStatistics class
+     */
+    public RenderStatistics() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads)
+            .isThreadAllocatedMemorySupported()) {
+            allocations = (com.sun.management.ThreadMXBean) threads;
+            allocations.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocations = null;
+        }
+        histogram = new long[FRAME_TIME_BUCKETS_MILLIS.length + 1];
+        lastAllocatedBytes = -1;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server, under a
+     * name unique to this JVM. Registration failures are ignored, since
+     * rendering does not depend on them.
+     */
+    public synchronized void register() {
+        if (name != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = new ObjectName(
+                "fractalgen:type=RenderStatistics,id=" 
+                + REGISTERED.incrementAndGet());
+            server.registerMBean(this, candidate);
+            name = candidate;
+        } catch (JMException e) {
+            // statistics remain available to the on-screen HUD
+        }
+    }
+
+    /**
+     * Removes these statistics from the platform MBean server, if they
+     * were registered, so that a stopped RenderWorker is not kept
+     * reachable. Failures are ignored, as for register().
+     */
+    public synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone; nothing left to release
+        }
+        name = null;
+    }
+
+    /**
+     * Reads the bytes allocated so far by the calling thread
+     *
+     * @return      allocated bytes; -1 if the JVM cannot measure them
+     */
+    public long currentThreadAllocatedBytes() {
+        return allocations == null ? -1
+            : allocations.getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    /**
+     * Starts the JFR event of a frame
+     *
+     * @param   depth       recursion depth of the frame
+     * @param   viewport    view of the fractal the frame shows
+     * @return              started event; record the frame once it is done
+     */
+    public FrameEvent beginFrame(int depth, Viewport viewport) {
+        FrameEvent event = new FrameEvent();
+        event.depth = depth;
+        event.width = viewport.getWidth();
+        event.height = viewport.getHeight();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Starts the JFR event of a generation pass
+     *
+     * @param   levels  number of levels the pass generates
+     * @return          started event; commit it once the pass is done
+     */
+    public GenerationEvent beginGeneration(int levels) {
+        GenerationEvent event = new GenerationEvent();
+        event.levels = levels;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records the Circles published by a pass
+     *
+     * @param   event           event of the pass's generation
+     * @param   circles         number of Circles the pass generated
+     * @param   estimatedBytes  footprint estimated before generating
+     * @param   streamed        whether the Circles were streamed to the
+     *                          rasterizer rather than held
+     */
+    public synchronized void recordPass(GenerationEvent event, int circles,
+        long estimatedBytes, boolean streamed) {
+        lastCircleCount = circles;
+        lastEstimatedBytes = estimatedBytes;
+        lastPassStreamed = streamed;
+        if (streamed) {
+            passesStreamed++;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.circles = circles;
+            event.estimatedBytes = estimatedBytes;
+            event.streamed = streamed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a frame rendered to full detail
+     *
+     * @param   frame               description of the frame
+     * @param   generationNanos     time spent generating, in nanoseconds
+     * @param   drawNanos           time spent drawing, in nanoseconds
+     * @param   frameNanos          total time of the frame, in nanoseconds
+     * @param   allocatedBytes      bytes allocated for the frame; -1 if
+     *                              unknown
+     */
+    public synchronized void recordFrame(FrameEvent frame, long generationNanos,
+        long drawNanos, long frameNanos, long allocatedBytes) {
+        framesCompleted++;
+        lastGenerationNanos = generationNanos;
+        lastDrawNanos = drawNanos;
+        lastFrameNanos = frameNanos;
+        totalFrameNanos += frameNanos;
+        lastAllocatedBytes = allocatedBytes;
+        long millis = frameNanos / (long) NANOS_PER_MILLI;
+        int bucket = 0;
+        while (bucket < FRAME_TIME_BUCKETS_MILLIS.length
+            && millis >= FRAME_TIME_BUCKETS_MILLIS[bucket]) {
+            bucket++;
+        }
+        histogram[bucket]++;
+        commit(frame, allocatedBytes, false);
+    }
+
+    /**
+     * Records a frame abandoned for a newer request
+     *
+     * @param   frame   description of the frame
+     */
+    public synchronized void recordCancelled(FrameEvent frame) {
+        framesCancelled++;
+        commit(frame, -1, true);
+    }
+
+    /**
+     * Records the time a paint took to copy a frame on screen
+     *
+     * @param   paintNanos  paint time in nanoseconds
+     */
+    public synchronized void recordPaint(long paintNanos) {
+        lastPaintNanos = paintNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getFramesCompleted() {
+        return framesCompleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getFramesCancelled() {
+        return framesCancelled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int getLastCircleCount() {
+        return lastCircleCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getLastEstimatedBytes() {
+        return lastEstimatedBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isLastPassStreamed() {
+        return lastPassStreamed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getPassesStreamed() {
+        return passesStreamed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getLastGenerationMillis() {
+        return lastGenerationNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getLastDrawMillis() {
+        return lastDrawNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getLastFrameMillis() {
+        return lastFrameNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getLastPaintMillis() {
+        return lastPaintNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getAverageFrameMillis() {
+        return framesCompleted == 0 ? 0
+            : totalFrameNanos / NANOS_PER_MILLI / framesCompleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getFrameTimeBucketsMillis() {
+        return FRAME_TIME_BUCKETS_MILLIS.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long[] getFrameTimeHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized double getFrameTimePercentileMillis(double percentile) {
+        long needed = (long) Math.ceil(framesCompleted * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < FRAME_TIME_BUCKETS_MILLIS.length; 
+            bucket++) {
+            seen += histogram[bucket];
+            if (seen >= needed) {
+                return FRAME_TIME_BUCKETS_MILLIS[bucket];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        framesCompleted = 0;
+        framesCancelled = 0;
+        lastCircleCount = 0;
+        lastEstimatedBytes = 0;
+        lastPassStreamed = false;
+        passesStreamed = 0;
+        lastGenerationNanos = 0;
+        lastDrawNanos = 0;
+        lastFrameNanos = 0;
+        lastPaintNanos = 0;
+        totalFrameNanos = 0;
+        lastAllocatedBytes = -1;
+        Arrays.fill(histogram, 0);
+    }
+
+    /**
+     * Ends and commits the JFR event of a frame
+     *
+     * @param   frame           description of the frame
+     * @param   allocatedBytes  bytes allocated for the frame; -1 if unknown
+     * @param   cancelled       whether the frame was abandoned
+     */
+    private void commit(FrameEvent frame, long allocatedBytes,
+        boolean cancelled) {
+        frame.end();
+        if (frame.shouldCommit()) {
+            frame.circles = lastCircleCount;
+            frame.allocatedBytes = allocatedBytes;
+            frame.cancelled = cancelled;
+            frame.commit();
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * JFR event covering one generation pass of a frame
+     */
+    @Name("fractalgen.Generation")
+    @Label("Fractal Generation")
+    @Category("Fractal Generator")
+    public static class GenerationEvent extends Event {
+        /** Number of levels generated */
+        @Label("Levels")
+        int levels;
+        /** Number of Circles generated */
+        @Label("Circles")
+        int circles;
+        /** Footprint estimated before generating */
+        @Label("Estimated")
+        @DataAmount
+        long estimatedBytes;
+        /** Whether the Circles were streamed over the memory budget */
+        @Label("Streamed")
+        boolean streamed;
+    }
+
+    /**
+     * JFR event covering one frame, from its request to full detail or
+     * cancellation
+     */
+    @Name("fractalgen.Frame")
+    @Label("Fractal Frame")
+    @Category("Fractal Generator")
+    public static class FrameEvent extends Event {
+        /** Recursion depth of the frame */
+        @Label("Depth")
+        int depth;
+        /** Width of the frame in pixels */
+        @Label("Width")
+        int width;
+        /** Height of the frame in pixels */
+        @Label("Height")
+        int height;
+        /** Number of Circles in the last published pass */
+        @Label("Circles")
+        int circles;
+        /** Bytes allocated by the render thread for the frame */
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+        /** Whether the frame was abandoned for a newer request */
+        @Label("Cancelled")
+        boolean cancelled;
+    }
+}
@@ -0,0 +1,130 @@
+package fractalgen;
+
+/**
+ * Management interface exposing the RenderStatistics of a RenderWorker
+ * through JMX
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public interface RenderStatisticsMBean {
+
+    /**
+     * Retrieves the number of frames rendered to full detail
+     *
+     * @return      number of completed frames
+     */
+    long getFramesCompleted();
+
+    /**
+     * Retrieves the number of frames abandoned for a newer request
+     *
+     * @return      number of cancelled frames
+     */
+    long getFramesCancelled();
+
+    /**
+     * Retrieves the number of Circles in the last published frame
+     *
+     * @return      number of Circles
+     */
+    int getLastCircleCount();
+
+    /**
+     * Retrieves the footprint of the last generation pass, estimated
+     * before generating it
+     *
+     * @return      estimated footprint in bytes
+     */
+    long getLastEstimatedBytes();
+
+    /**
+     * Checks whether the last generation pass was over the memory budget
+     * and streamed to the rasterizer rather than held
+     *
+     * @return      true if the last pass was streamed
+     */
+    boolean isLastPassStreamed();
+
+    /**
+     * Retrieves the number of generation passes streamed over the memory
+     * budget
+     *
+     * @return      number of streamed passes
+     */
+    long getPassesStreamed();
+
+    /**
+     * Retrieves the time the last completed frame spent generating Circles
+     *
+     * @return      generation time in milliseconds
+     */
+    double getLastGenerationMillis();
+
+    /**
+     * Retrieves the time the last completed frame spent drawing Circles
+     *
+     * @return      drawing time in milliseconds
+     */
+    double getLastDrawMillis();
+
+    /**
+     * Retrieves the time the last completed frame took from start to full
+     * detail
+     *
+     * @return      frame time in milliseconds
+     */
+    double getLastFrameMillis();
+
+    /**
+     * Retrieves the time the last paint took to copy a frame on screen
+     *
+     * @return      paint time in milliseconds
+     */
+    double getLastPaintMillis();
+
+    /**
+     * Retrieves the average time of the completed frames
+     *
+     * @return      average frame time in milliseconds
+     */
+    double getAverageFrameMillis();
+
+    /**
+     * Retrieves the bytes allocated by the render thread for the last
+     * completed frame
+     *
+     * @return      allocated bytes; -1 if the JVM cannot measure them
+     */
+    long getLastAllocatedBytes();
+
+    /**
+     * Retrieves the upper bounds of the frame time histogram buckets. The
+     * last bucket is unbounded.
+     *
+     * @return      upper bounds in milliseconds
+     */
+    long[] getFrameTimeBucketsMillis();
+
+    /**
+     * Retrieves the number of completed frames in each frame time bucket
+     *
+     * @return      frame counts, one more than there are bucket bounds
+     */
+    long[] getFrameTimeHistogram();
+
+    /**
+     * Retrieves an upper bound of the frame time that the given share of
+     * completed frames stayed within, from the histogram
+     *
+     * @param   percentile  share of frames, from 0 to 100
+     * @return              bucket bound in milliseconds; infinity if
+     *                      the frames fall in the unbounded bucket
+     */
+    double getFrameTimePercentileMillis(double percentile);
+
+    /**
+     * Discards all recorded statistics
+     */
+    void reset();
+}
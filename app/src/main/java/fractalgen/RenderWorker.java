@@ -0,0 +1,648 @@
+package fractalgen;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates and draws fractal patterns on a background thread. Each frame
+ * is drawn into an offscreen back buffer, which is swapped with the front
+ * buffer once it is complete, so painting only ever copies the latest
+ * completed frame.
+ *
+ * Frames are rendered coarse to fine: the first few levels of the fractal
+ * are drawn and published first, then each following pass adds more levels
+ * until the whole visible fractal is drawn. Only the last pass is fetched
+ * through the Subject's cache; the earlier ones are generated into a
+ * buffer reused from pass to pass, so they do not evict useful geometry.
+ *
+ * Each request captures the Subject's current parameter snapshot. At most
+ * one render is in flight: a new request cancels the render in progress and
+ * replaces any render still waiting, so intermediate requests are dropped
+ * and a stale render never holds up a fresh one. A request for exactly the
+ * frame already on screen is ignored.
+ *
+ * Painting maps the latest completed frame onto the latest requested
+ * view, so resizing, moving or panning shows the previous frame shifted
+ * into place at once. A request for a view that the last complete frame
+ * already covers at the same scale, such as a window made smaller, is
+ * served by that frame without rendering.
+ *
+ * RenderWorkers of several windows can share a FrameCache, so geometry
+ * for the same view is generated once for all of them and each completed
+ * frame is rendered once and then copied.
+ *
+ * Every frame is measured; see getStatistics.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class RenderWorker {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Smallest number of Circles drawn with the TileRasterizer */
+    public static final int TILED_MIN_CIRCLES = 16384;
+    /** Number of levels drawn by the first pass of a render */
+    public static final int FIRST_PASS_LEVELS = 8;
+    /** Number of levels added by each following pass of a render */
+    public static final int PASS_LEVELS = 4;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Object providing the fractal pattern data */
+    private final Subject subject;
+    /** Component to repaint when a new frame is completed */
+    private final Component target;
+    /** Draws large fractal patterns directly into the frame's pixels */
+    private final TileRasterizer rasterizer;
+    /** Draws whole frames by stamping subtree sprites */
+    private final InstancedRenderer instancer;
+    /** Whether frames are drawn by the InstancedRenderer */
+    private volatile boolean instanced;
+    /** Timings and counts of the rendered frames */
+    private final RenderStatistics statistics;
+    /** Geometry and frames shared with the workers of other windows */
+    private final FrameCache frames;
+    /** Thread frames are rendered on */
+    private final ExecutorService executor;
+    /** Guards swapping and painting of the front buffer */
+    private final Object frameLock;
+    /** Latest completed frame; null until the first frame completes */
+    private BufferedImage front;
+    /** View shown by the front buffer; guarded by frameLock */
+    private Viewport frontViewport;
+    /** Parameters of the front buffer once its render has finished, null
+     *  while it is an intermediate pass; guarded by frameLock */
+    private FractalParameters frontParameters;
+    /** Whether the front buffer was instanced; guarded by frameLock */
+    private boolean frontInstanced;
+    /** Latest requested view, which the front buffer is painted onto */
+    private volatile Viewport requested;
+    /** Frame currently being rendered into; only used by the render thread */
+    private BufferedImage back;
+    /** Circles of the intermediate passes; only used by the render thread */
+    private final CircleBuffer passCircles;
+    /** Most recently requested render; guarded by this RenderWorker */
+    private Future<?> inFlight;
+    /** Parameters of the last fully rendered frame; render thread only */
+    private FractalParameters completedParameters;
+    /** View of the last fully rendered frame; render thread only */
+    private Viewport completedViewport;
+    /** Whether the last fully rendered frame was instanced; render thread only */
+    private boolean completedInstanced;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for RenderWorker class
+     *
+     * @param   subject     object providing the fractal pattern data
+     * @param   target      component to repaint when a frame is completed
+     */
+    public RenderWorker(Subject subject, Component target) {
+        this(subject, target, new FrameCache());
+    }
+
+    /**
+     * Constructor; sets up a worker sharing geometry and frames with the
+     * workers of other windows
+     *
+     * @param   subject     object providing the fractal pattern data
+     * @param   target      component to repaint when a frame is completed
+     * @param   frames      render product shared with other workers
+     */
+    public RenderWorker(Subject subject, Component target, FrameCache frames) {
+        this.subject = subject;
+        this.target = target;
+        this.frames = frames;
+        rasterizer = new TileRasterizer();
+        instancer = new InstancedRenderer();
+        statistics = new RenderStatistics();
+        statistics.register();
+        frameLock = new Object();
+        passCircles = new CircleBuffer();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fractal-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Requests a new frame showing the designated view of the fractal with
+     * the Subject's current parameters. The render in progress, if any, is
+     * cancelled. Nothing is rendered if the last complete frame covers the
+     * view.
+     *
+     * @param   viewport    view of the fractal; also sets the frame size
+     */
+    public synchronized void requestRender(Viewport viewport) {
+        FractalParameters parameters = subject.getParameters();
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+        boolean instancedFrame = instanced;
+        requested = viewport;
+        if (covers(viewport, parameters, instancedFrame)) {
+            target.repaint();
+            return;
+        }
+        inFlight = executor.submit(() -> render(parameters, viewport, 
+            instancedFrame));
+        // show the previous frame in place until the new one is ready
+        target.repaint();
+    }
+
+    /**
+     * Shows the latest completed frame at a new view without rendering
+     * it, for views that change faster than they can be rendered, such as
+     * a window being resized. Parts of the view the frame does not cover
+     * stay empty until the view is requested with requestRender.
+     *
+     * @param   viewport    view of the fractal to show
+     */
+    public void preview(Viewport viewport) {
+        requested = viewport;
+        target.repaint();
+    }
+
+    /**
+     * Copies the latest completed frame onto the provided graphical
+     * component, placed where the latest requested view shows it. Draws
+     * nothing if no frame has completed yet.
+     *
+     * @param   g   graphics object to draw the frame on
+     */
+    public void paintFrame(Graphics g) {
+        long start = System.nanoTime();
+        Viewport view = requested;
+        synchronized (frameLock) {
+            if (front != null) {
+                if (view == null || view.equals(frontViewport)) {
+                    g.drawImage(front, 0, 0, null);
+                } else {
+                    paintMoved(g, view);
+                }
+            }
+        }
+        statistics.recordPaint(System.nanoTime() - start);
+    }
+
+    /**
+     * Chooses how frames are drawn. Instanced frames are drawn in a
+     * single pass whose cost grows linearly with the depth, at the price of
+     * slightly blurred fine detail; otherwise frames are generated Circle
+     * by Circle and refined coarse to fine. Takes effect from the next
+     * request.
+     *
+     * @param   instanced   true to draw frames with the InstancedRenderer
+     */
+    public void setInstanced(boolean instanced) {
+        this.instanced = instanced;
+    }
+
+    /**
+     * Checks how frames are drawn
+     *
+     * @return      true if frames are drawn with the InstancedRenderer
+     */
+    public boolean isInstanced() {
+        return instanced;
+    }
+
+    /**
+     * Retrieves the timings and counts of the frames rendered so far. They
+     * are also registered with JMX.
+     *
+     * @return      statistics of this RenderWorker
+     */
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Stops the render thread and unregisters its statistics from JMX.
+     * Frames already completed can still be painted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        frames.removeViewer(this);
+        statistics.unregister();
+    }
+
+    /**
+     * Renders a view of the fractal, publishing a frame after each pass.
+     * Passes stop once a pass adds no Circles, since deeper levels are
+     * then either off-screen or smaller than a pixel.
+     *
+     * @param   parameters      snapshot of the parameters to render
+     * @param   frameViewport   view of the fractal to render
+     * @param   instancedFrame  whether to draw with the InstancedRenderer
+     */
+    private void render(FractalParameters parameters, Viewport frameViewport,
+        boolean instancedFrame) {
+        if (frameViewport.getWidth() <= 0 || frameViewport.getHeight() <= 0
+            || (frameViewport.equals(completedViewport)
+            && parameters.equals(completedParameters)
+            && instancedFrame == completedInstanced)) {
+            return;
+        }
+        completedInstanced = instancedFrame;
+        completedParameters = null;
+        completedViewport = null;
+        int depth = parameters.getRecursionDepth();
+        RenderStatistics.FrameEvent frame = statistics.beginFrame(depth,
+            frameViewport);
+        long frameStart = System.nanoTime();
+        long allocatedStart = statistics.currentThreadAllocatedBytes();
+        long generationNanos = 0;
+        long drawNanos = 0;
+        // colors are applied when drawing, so a color change redraws
+        // cached geometry without generating it again
+        Palette palette = Palette.of(parameters);
+        FrameCache.FrameKey key = new FrameCache.FrameKey(parameters,
+            frameViewport, instancedFrame, target.getBackground().getRGB());
+        boolean claimed = false;
+        try {
+            // another window may already have rendered this frame, or be
+            // rendering it
+            BufferedImage shared = frames.get(key);
+            if (shared == null) {
+                CompletableFuture<BufferedImage> other = frames.claim(key);
+                claimed = other == null;
+                if (!claimed) {
+                    shared = awaitFrame(other);
+                }
+            }
+            if (shared != null) {
+                long drawStart = System.nanoTime();
+                publishCopy(frameViewport, shared);
+                markCompleted(parameters, frameViewport, instancedFrame);
+                long allocatedEnd = statistics.currentThreadAllocatedBytes();
+                statistics.recordFrame(frame, 0, System.nanoTime() - drawStart,
+                    System.nanoTime() - frameStart,
+                    allocatedStart < 0 ? -1 : allocatedEnd - allocatedStart);
+                return;
+            }
+            if (instancedFrame) {
+                long drawStart = System.nanoTime();
+                publishInstanced(parameters, frameViewport, palette);
+                completeFrame(key, claimed);
+                claimed = false;
+                markCompleted(parameters, frameViewport, instancedFrame);
+                long allocatedEnd = statistics.currentThreadAllocatedBytes();
+                statistics.recordFrame(frame, 0, System.nanoTime() - drawStart,
+                    System.nanoTime() - frameStart, 
+                    allocatedStart < 0 ? -1 : allocatedEnd - allocatedStart);
+                return;
+            }
+            int previousCount = -1;
+            int levels = Math.min(FIRST_PASS_LEVELS, depth);
+            while (!Thread.currentThread().isInterrupted()) {
+                // only the part of the fractal inside the frame is
+                // generated, already placed in pixel coordinates; windows
+                // with the same view share it through the cover Viewport
+                RenderStatistics.GenerationEvent pass = 
+                    statistics.beginGeneration(levels);
+                long passStart = System.nanoTime();
+                Viewport cover = frames.cover(this, frameViewport);
+                int[] offset = FrameCache.getOffset(cover, frameViewport);
+                long estimate = subject.estimateBytes(parameters, cover,
+                    levels);
+                boolean refined;
+                if (estimate > subject.getMemoryBudget()) {
+                    // too large to hold: Circles are drawn as they are
+                    // generated, and nothing is cached
+                    long[] streamDrawNanos = new long[1];
+                    int count = drawStreamed(parameters, cover, levels,
+                        frameViewport, palette, offset, streamDrawNanos);
+                    drawNanos += streamDrawNanos[0];
+                    generationNanos += System.nanoTime() - passStart
+                        - streamDrawNanos[0];
+                    statistics.recordPass(pass, count, estimate, true);
+                    refined = count != previousCount;
+                    if (refined) {
+                        swap(frameViewport);
+                        previousCount = count;
+                    }
+                } else {
+                    // an intermediate pass is replaced by the next one, so
+                    // only the full depth is worth caching
+                    CircleBuffer fractal = passCircles;
+                    if (levels < depth) {
+                        subject.generateFrame(levels, 
+                            parameters.getRadiusRatio(),
+                            parameters.getAngleIncrement(), cover, fractal);
+                    } else {
+                        fractal = subject.getData(parameters, cover, levels);
+                    }
+                    long drawStart = System.nanoTime();
+                    generationNanos += drawStart - passStart;
+                    statistics.recordPass(pass, fractal.size(), estimate,
+                        false);
+                    refined = fractal.size() != previousCount;
+                    if (refined) {
+                        publish(frameViewport, fractal, palette, offset[0],
+                            offset[1]);
+                        previousCount = fractal.size();
+                        drawNanos += System.nanoTime() - drawStart;
+                    }
+                }
+                if (!refined || levels >= depth) {
+                    completeFrame(key, claimed);
+                    claimed = false;
+                    markCompleted(parameters, frameViewport, instancedFrame);
+                    long allocatedEnd = statistics.currentThreadAllocatedBytes();
+                    statistics.recordFrame(frame, generationNanos, drawNanos,
+                        System.nanoTime() - frameStart, 
+                        allocatedStart < 0 ? -1 : allocatedEnd - allocatedStart);
+                    return;
+                }
+                levels = Math.min(levels + PASS_LEVELS, depth);
+            }
+        } catch (CancellationException e) {
+            // a newer render has been requested
+        } finally {
+            if (claimed) {
+                // let the windows waiting for this frame render it
+                frames.abandon(key);
+            }
+        }
+        statistics.recordCancelled(frame);
+    }
+
+    /**
+     * Records that the front buffer holds a fully rendered frame
+     *
+     * @param   parameters      parameters the frame was rendered with
+     * @param   frameViewport   view the frame shows
+     * @param   instancedFrame  whether the frame was instanced
+     */
+    private void markCompleted(FractalParameters parameters,
+        Viewport frameViewport, boolean instancedFrame) {
+        completedParameters = parameters;
+        completedViewport = frameViewport;
+        synchronized (frameLock) {
+            frontParameters = parameters;
+            frontInstanced = instancedFrame;
+        }
+    }
+
+    /**
+     * Checks whether the last complete frame already shows a whole view:
+     * same parameters, drawing mode and scale, with the view's area inside
+     * the frame at a whole pixel offset
+     *
+     * @param   viewport        view to check
+     * @param   parameters      parameters the view is requested with
+     * @param   instancedFrame  whether the view is requested instanced
+     * @return                  true if the view needs no rendering
+     */
+    private boolean covers(Viewport viewport, FractalParameters parameters,
+        boolean instancedFrame) {
+        synchronized (frameLock) {
+            if (front == null || frontParameters == null
+                || !frontParameters.equals(parameters)
+                || frontInstanced != instancedFrame
+                || frontViewport.getScale() != viewport.getScale()) {
+                return false;
+            }
+            double left = -frameLeft(viewport);
+            double top = -frameTop(viewport);
+            return Math.abs(left - Math.rint(left)) < 1e-6
+                && Math.abs(top - Math.rint(top)) < 1e-6
+                && Math.rint(left) >= 0 && Math.rint(top) >= 0
+                && Math.rint(left) + viewport.getWidth() <= front.getWidth()
+                && Math.rint(top) + viewport.getHeight() <= front.getHeight();
+        }
+    }
+
+    /**
+     * Draws the front buffer where a different view shows it: shifted,
+     * and stretched if the scale differs, as a stand-in until the view
+     * is rendered. The caller must hold frameLock.
+     *
+     * @param   g       graphics object to draw the frame on
+     * @param   view    view the graphics object shows
+     */
+    private void paintMoved(Graphics g, Viewport view) {
+        int left = (int) Math.round(frameLeft(view));
+        int top = (int) Math.round(frameTop(view));
+        if (view.getScale() == frontViewport.getScale()) {
+            g.drawImage(front, left, top, null);
+        } else {
+            double zoom = view.getScale() / frontViewport.getScale();
+            g.drawImage(front, left, top,
+                (int) Math.round(front.getWidth() * zoom),
+                (int) Math.round(front.getHeight() * zoom), null);
+        }
+    }
+
+    /**
+     * Retrieves where the left edge of the front buffer lies in a view.
+     * The caller must hold frameLock.
+     *
+     * @param   view    view to place the front buffer in
+     * @return          x-coordinate in the view's pixels
+     */
+    private double frameLeft(Viewport view) {
+        // Viewport centers its view on width / 2 in integer pixels
+        double x = frontViewport.getCenterX()
+            - frontViewport.getWidth() / 2 / frontViewport.getScale();
+        return view.toPixelX(x);
+    }
+
+    /**
+     * Retrieves where the top edge of the front buffer lies in a view.
+     * The caller must hold frameLock.
+     *
+     * @param   view    view to place the front buffer in
+     * @return          y-coordinate in the view's pixels
+     */
+    private double frameTop(Viewport view) {
+        double y = frontViewport.getCenterY()
+            - frontViewport.getHeight() / 2 / frontViewport.getScale();
+        return view.toPixelY(y);
+    }
+
+    /**
+     * Waits for a frame being rendered by another window's worker. Throws
+     * CancellationException if the calling thread is interrupted while
+     * waiting.
+     *
+     * @param   other   the other worker's render
+     * @return          the completed frame; null if the other worker gave
+     *                  it up
+     */
+    private static BufferedImage awaitFrame(
+        CompletableFuture<BufferedImage> other) {
+        try {
+            return other.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("render interrupted");
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hands a copy of the completed front buffer to the FrameCache, if this
+     * worker claimed the frame
+     *
+     * @param   key         parameters and view of the frame
+     * @param   claimed     whether this worker claimed the frame
+     */
+    private void completeFrame(FrameCache.FrameKey key, boolean claimed) {
+        if (!claimed) {
+            return;
+        }
+        BufferedImage copy;
+        synchronized (frameLock) {
+            copy = new BufferedImage(front.getWidth(), front.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+            int[] source = ((DataBufferInt) front.getRaster().getDataBuffer())
+                .getData();
+            int[] destination = ((DataBufferInt) copy.getRaster()
+                .getDataBuffer()).getData();
+            System.arraycopy(source, 0, destination, 0, source.length);
+        }
+        frames.complete(key, copy);
+    }
+
+    /**
+     * Copies a completed frame into the back buffer and publishes it as the
+     * front buffer
+     *
+     * @param   frameViewport   view the frame shows
+     * @param   frame           completed frame of the same size
+     */
+    private void publishCopy(Viewport frameViewport, BufferedImage frame) {
+        Graphics2D g = clearBack(frameViewport);
+        try {
+            g.drawImage(frame, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        swap(frameViewport);
+    }
+
+    /**
+     * Draws a fractal pattern into the back buffer and publishes it as the
+     * front buffer
+     *
+     * @param   frameViewport   view the frame shows
+     * @param   fractal         Circles in pixel coordinates of the view
+     *                          they were generated for
+     * @param   palette         colors of the levels of the fractal
+     * @param   xOffset         pixels on the x-axis to offset the Circles by
+     * @param   yOffset         pixels on the y-axis to offset the Circles by
+     */
+    private void publish(Viewport frameViewport, CircleBuffer fractal,
+        Palette palette, int xOffset, int yOffset) {
+        Graphics2D g = clearBack(frameViewport);
+        try {
+            if (fractal.size() >= TILED_MIN_CIRCLES) {
+                rasterizer.draw(fractal, palette, back, xOffset, yOffset);
+            } else {
+                fractal.draw(g, palette, xOffset, yOffset);
+            }
+        } finally {
+            g.dispose();
+        }
+        swap(frameViewport);
+    }
+
+    /**
+     * Streams a pass over the memory budget into the back buffer, drawing
+     * each chunk of Circles as soon as it is generated. The back buffer is
+     * not published.
+     *
+     * @param   parameters      parameters of the fractal pattern
+     * @param   cover           view the Circles are generated for
+     * @param   levels          number of levels to generate
+     * @param   frameViewport   view the frame shows
+     * @param   palette         colors of the levels of the fractal
+     * @param   offset          pixels to offset the Circles by on the x
+     *                          and y axes
+     * @param   drawNanos       receives the time spent drawing, in
+     *                          nanoseconds, in its first element
+     * @return                  number of Circles drawn
+     */
+    private int drawStreamed(FractalParameters parameters, Viewport cover,
+        int levels, Viewport frameViewport, Palette palette, int[] offset,
+        long[] drawNanos) {
+        clearBack(frameViewport).dispose();
+        return subject.streamData(parameters, cover, levels, chunk -> {
+            long drawStart = System.nanoTime();
+            rasterizer.draw(chunk, palette, back, offset[0], offset[1]);
+            drawNanos[0] += System.nanoTime() - drawStart;
+        });
+    }
+
+    /**
+     * Draws the whole fractal into the back buffer with the
+     * InstancedRenderer and publishes it as the front buffer
+     *
+     * @param   parameters      parameters of the fractal pattern
+     * @param   frameViewport   view of the fractal to draw
+     * @param   palette         colors of the levels of the fractal
+     */
+    private void publishInstanced(FractalParameters parameters, 
+        Viewport frameViewport, Palette palette) {
+        clearBack(frameViewport).dispose();
+        instancer.draw(parameters, frameViewport, palette, back);
+        swap(frameViewport);
+    }
+
+    /**
+     * Sizes the back buffer for a view and fills it with the background
+     *
+     * @param   frameViewport   view the next frame shows
+     * @return                  graphics drawing into the back buffer; the
+     *                          caller must dispose of it
+     */
+    private Graphics2D clearBack(Viewport frameViewport) {
+        int frameWidth = frameViewport.getWidth();
+        int frameHeight = frameViewport.getHeight();
+        if (back == null || back.getWidth() != frameWidth
+            || back.getHeight() != frameHeight) {
+            back = new BufferedImage(frameWidth, frameHeight,
+                BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = back.createGraphics();
+        g.setColor(target.getBackground());
+        g.fillRect(0, 0, frameWidth, frameHeight);
+        return g;
+    }
+
+    /**
+     * Publishes the back buffer as the front buffer and repaints the target
+     *
+     * @param   frameViewport   view the back buffer shows
+     */
+    private void swap(Viewport frameViewport) {
+        synchronized (frameLock) {
+            BufferedImage completed = back;
+            back = front;
+            front = completed;
+            frontViewport = frameViewport;
+            // complete once the render marks it so
+            frontParameters = null;
+        }
+        target.repaint();
+    }
+}
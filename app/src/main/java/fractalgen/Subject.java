@@ -0,0 +1,177 @@
+package fractalgen;
+
+import java.awt.Color;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Requirements for Subjects
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public interface Subject {
+
+    /**
+     * Observer subscribes from changes in this Subject
+     *
+     * @param   observer    Observer to subscribe to this Subject
+     */
+    public void registerObserver(Observer observer);
+
+    /**
+     * Observer subscribes to changes in this Subject, with its updates
+     * delivered on an Executor through an AsyncObserver
+     *
+     * @param   observer    Observer to subscribe to this Subject
+     * @param   executor    runs the Observer's updates
+     * @param   capacity    maximum number of pending updates
+     * @return              wrapper delivering the updates
+     */
+    public AsyncObserver registerObserver(Observer observer, 
+        Executor executor, int capacity);
+
+    /**
+     * Observer unsubscribes from changes in this Subject
+     *
+     * @param   observer    Observer to unsubscribe from this Subject
+     */
+    public void removeObserver(Observer observer);
+
+    /**
+     * Notifies all subscribed Observers that a change was made to this Subject
+     */
+    public void notifyObservers();
+
+    /**
+     * Sets new data for this Subject. Observers are notified only if the
+     * data differs from the current data.
+     *
+     * @param   recursionDepth  number of levels of fractals to draw
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   cactusColor     color of the cactus body
+     * @param   pearColor       color of the cactus tips
+     * @param   childrenAngle   angle of the children
+     */
+    public void setData(int recursionDepth, int radiusRatio, Color cactusColor, Color pearColor, double childrenAngle);
+
+    /**
+     * Retrieves data from this Subject. Throws IllegalStateException if
+     * the whole pattern does not fit the memory budget.
+     * 
+     * @return  Circles composing the fractal pattern
+     */
+    public CircleBuffer getData();
+
+    /**
+     * Retrieves the data from this Subject that is visible in a Viewport
+     *
+     * @param   viewport    visible area of the fractal pattern
+     * @return  Circles composing the visible fractal pattern, in pixel
+     *          coordinates of the Viewport
+     */
+    public CircleBuffer getData(Viewport viewport);
+
+    /**
+     * Retrieves the first levels of the data for a snapshot of this
+     * Subject's parameters that is visible in a Viewport
+     *
+     * @param   parameters  snapshot returned by getParameters()
+     * @param   viewport    visible area of the fractal pattern
+     * @param   levels      largest number of levels to retrieve
+     * @return  Circles composing the visible fractal pattern, in pixel
+     *          coordinates of the Viewport
+     */
+    public CircleBuffer getData(FractalParameters parameters, 
+        Viewport viewport, int levels);
+
+    /**
+     * Generates the data visible in a Viewport for a shape that differs
+     * from this Subject's parameters into a buffer owned by the caller,
+     * without caching it. Used for animation frames.
+     *
+     * @param   depth           number of levels of fractals to generate
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   angleIncrement  angle from parent to child Circles, in radians
+     * @param   viewport        visible area of the fractal pattern
+     * @param   fractal         buffer receiving the Circles, in pixel
+     *                          coordinates of the Viewport
+     */
+    public void generateFrame(int depth, int radiusRatio, 
+        double angleIncrement, Viewport viewport, CircleBuffer fractal);
+
+    /**
+     * Retrieves the parameters most recently set on this Subject as an
+     * immutable snapshot, without locking. Each change to the parameters
+     * publishes a new snapshot with a higher version.
+     *
+     * @return  current parameters of the fractal pattern
+     */
+    public FractalParameters getParameters();
+
+    /**
+     * Estimates how many Circles the first levels of the data visible in
+     * a Viewport hold, before generating them
+     *
+     * @param   parameters  snapshot returned by getParameters()
+     * @param   viewport    visible area of the fractal pattern; null for
+     *                      the whole pattern
+     * @param   levels      largest number of levels to retrieve
+     * @return  upper bound of the number of Circles
+     */
+    public long estimateCircles(FractalParameters parameters, 
+        Viewport viewport, int levels);
+
+    /**
+     * Estimates the peak memory taken by retrieving and drawing the first
+     * levels of the data visible in a Viewport as one CircleBuffer
+     *
+     * @param   parameters  snapshot returned by getParameters()
+     * @param   viewport    visible area of the fractal pattern; null for
+     *                      the whole pattern
+     * @param   levels      largest number of levels to retrieve
+     * @return  upper bound of the footprint in bytes
+     */
+    public long estimateBytes(FractalParameters parameters, 
+        Viewport viewport, int levels);
+
+    /**
+     * Checks whether the estimated footprint of the first levels of the
+     * data visible in a Viewport is within the memory budget, so getData
+     * can retrieve them; otherwise they should be streamed with streamData
+     *
+     * @param   parameters  snapshot returned by getParameters()
+     * @param   viewport    visible area of the fractal pattern; null for
+     *                      the whole pattern
+     * @param   levels      largest number of levels to retrieve
+     * @return  true if the data fits the memory budget
+     */
+    public boolean fitsMemoryBudget(FractalParameters parameters, 
+        Viewport viewport, int levels);
+
+    /**
+     * Retrieves the largest estimated footprint of data that is retrieved
+     * as one CircleBuffer
+     *
+     * @return  memory budget in bytes
+     */
+    public long getMemoryBudget();
+
+    /**
+     * Generates the first levels of the data visible in a Viewport in
+     * chunks, handing each to a sink in drawing order as soon as it is
+     * full, so memory use does not depend on the size of the data. The
+     * chunk is reused for the next one, so the sink must be done with it
+     * when it returns. Nothing is cached. Throws CancellationException if
+     * the calling thread is interrupted.
+     *
+     * @param   parameters  snapshot returned by getParameters()
+     * @param   viewport    visible area of the fractal pattern
+     * @param   levels      largest number of levels to retrieve
+     * @param   sink        receives the chunks of Circles, in pixel
+     *                      coordinates of the Viewport
+     * @return  number of Circles streamed
+     */
+    public int streamData(FractalParameters parameters, Viewport viewport,
+        int levels, Consumer<CircleBuffer> sink);
+}
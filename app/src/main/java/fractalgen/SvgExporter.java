@@ -0,0 +1,242 @@
+package fractalgen;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the whole cactus fractal pattern as an SVG document for print.
+ * Circles are streamed to the output as the tree is walked, so memory use
+ * does not depend on the recursion depth, only the output size does.
+ *
+ * When grouping is enabled, consecutive Circles of the same color are
+ * written inside one group that sets the color once, rather than each
+ * Circle carrying its own color. Only consecutive Circles are grouped, so
+ * the paint order, and with it the picture, is unchanged.
+ *
+ * Coordinates are written with a number of decimals that keeps about four
+ * significant digits of each level's Circle size.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class SvgExporter {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Significant digits written for the size of a Circle */
+    private static final int SIGNIFICANT_DIGITS = 4;
+    /** Largest number of decimals written for a coordinate */
+    private static final int MAX_DECIMALS = 12;
+    /** Powers of ten up to MAX_DECIMALS */
+    private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_DECIMALS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Walks the Circles of the fractal pattern */
+    private final FractalGenerator generator;
+    /** Whether consecutive Circles of the same color share a group */
+    private final boolean grouped;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for SvgExporter class
+     *
+     * @param   generator   walks the Circles of the fractal pattern
+     * @param   grouped     whether consecutive Circles of the same color
+     *                      share a group
+     */
+    public SvgExporter(FractalGenerator generator, boolean grouped) {
+        this.generator = generator;
+        this.grouped = grouped;
+    }
+
+    /**
+     * Writes the fractal pattern as an SVG document to a file, replacing
+     * the file if it exists
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   file        file to write
+     * @throws  IOException if the file cannot be written
+     */
+    public void export(FractalParameters parameters, Path file) 
+        throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            export(parameters, out);
+        }
+    }
+
+    /**
+     * Writes the fractal pattern as an SVG document. The writer should be
+     * buffered; it is flushed but not closed.
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   out         writer receiving the document
+     * @throws  IOException if the document cannot be written
+     */
+    public void export(FractalParameters parameters, Writer out) 
+        throws IOException {
+        double reach = generator.getReach(parameters);
+        int depth = parameters.getRecursionDepth();
+        Palette palette = Palette.of(parameters);
+        String[] fills = new String[depth];
+        int[] decimals = new int[depth];
+        double size = FractalGenerator.ROOT_SIZE;
+        for (int level = 0; level < depth; level++) {
+            fills[level] = String.format("#%06x", 
+                palette.getRGB(level) & 0xffffff);
+            int magnitude = (int) Math.floor(Math.log10(size));
+            decimals[level] = Math.max(0, Math.min(MAX_DECIMALS, 
+                SIGNIFICANT_DIGITS - 1 - magnitude));
+            size *= parameters.getRadiusRatio() / 100.0;
+        }
+
+        StringBuilder line = new StringBuilder();
+        line.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"");
+        appendNumber(line, -reach, 3).append(' ');
+        appendNumber(line, -reach, 3).append(' ');
+        appendNumber(line, 2 * reach, 3).append(' ');
+        appendNumber(line, 2 * reach, 3).append("\" width=\"");
+        appendNumber(line, 2 * reach, 3).append("\" height=\"");
+        appendNumber(line, 2 * reach, 3).append("\">\n");
+        out.write(line.toString());
+
+        CircleWriter writer = new CircleWriter(out, fills, decimals);
+        try {
+            generator.walk(parameters, writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Appends a number with at most a designated number of decimals,
+     * without trailing zeros
+     *
+     * @param   line        text to append to
+     * @param   value       number to append
+     * @param   decimals    largest number of decimals
+     * @return              line, for chaining
+     */
+    private static StringBuilder appendNumber(StringBuilder line, double value,
+        int decimals) {
+        long scaled = Math.round(Math.abs(value) * POWERS_OF_TEN[decimals]);
+        if (scaled == 0) {
+            return line.append('0');
+        }
+        if (value < 0) {
+            line.append('-');
+        }
+        long whole = scaled / POWERS_OF_TEN[decimals];
+        long fraction = scaled % POWERS_OF_TEN[decimals];
+        line.append(whole);
+        if (fraction != 0) {
+            line.append('.');
+            int digits = decimals;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (long power = POWERS_OF_TEN[digits - 1]; power > fraction 
+                && power > 1; power /= 10) {
+                line.append('0');
+            }
+            line.append(fraction);
+        }
+        return line;
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Writes each Circle it receives as an SVG element
+     */
+    private class CircleWriter implements CircleSink {
+        /** Writer receiving the document */
+        private final Writer out;
+        /** Fill color of each level */
+        private final String[] fills;
+        /** Decimals written for the coordinates of each level */
+        private final int[] decimals;
+        /** Text of the element being written; reused for every Circle */
+        private final StringBuilder line;
+        /** Fill color of the open group; null if no group is open */
+        private String openFill;
+
+        /**
+         * Constructor for CircleWriter class
+         *
+         * @param   out         writer receiving the document
+         * @param   fills       fill color of each level
+         * @param   decimals    decimals written for each level
+         */
+        private CircleWriter(Writer out, String[] fills, int[] decimals) {
+            this.out = out;
+            this.fills = fills;
+            this.decimals = decimals;
+            line = new StringBuilder();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void accept(double x, double y, double diameter, int level) {
+            line.setLength(0);
+            String fill = fills[level];
+            if (grouped && !fill.equals(openFill)) {
+                if (openFill != null) {
+                    line.append("</g>\n");
+                }
+                line.append("<g fill=\"").append(fill).append("\">\n");
+                openFill = fill;
+            }
+            int places = decimals[level];
+            line.append("<circle cx=\"");
+            appendNumber(line, x, places).append("\" cy=\"");
+            appendNumber(line, y, places).append("\" r=\"");
+            // halving the diameter can need one more decimal
+            appendNumber(line, diameter / 2, Math.min(MAX_DECIMALS, 
+                places + 1));
+            if (!grouped) {
+                line.append("\" fill=\"").append(fill);
+            }
+            line.append("\"/>\n");
+            try {
+                out.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Closes the open group, if any
+         *
+         * @throws  IOException if the document cannot be written
+         */
+        private void finish() throws IOException {
+            if (openFill != null) {
+                out.write("</g>\n");
+                openFill = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fractalgen;
+
+/**
+ * Bounded, least-recently-used cache of encoded image tiles keyed by how
+ * they were rendered. The cache is bounded by the total number of bytes
+ * it holds; the most recently used tile is always kept, even if it alone
+ * exceeds the bound. The cache keeps each array itself, so a tile must
+ * not be modified once it is stored.
+ *
+ * @param   <K>     key identifying how a tile was rendered
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class TileCache<K> extends WeightedLruCache<K, byte[]> {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Default maximum number of cached bytes */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an empty cache of default capacity.
+     */
+    public TileCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor; sets up an empty cache bounded by a designated number of
+     * bytes. Throws IllegalArgumentException if maxBytes is smaller than 0.
+     *
+     * @param   maxBytes    maximum number of cached bytes
+     */
+    public TileCache(long maxBytes) {
+        super(maxBytes, tile -> tile.length);
+    }
+
+    /**
+     * Retrieves the number of bytes held across all cached tiles.
+     *
+     * @return      number of cached bytes
+     */
+    public long getByteCount() {
+        return getWeight();
+    }
+}
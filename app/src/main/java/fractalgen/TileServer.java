@@ -0,0 +1,575 @@
+package fractalgen;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Serves cactus fractal patterns as PNG map tiles over HTTP, without a
+ * display. A tile is addressed as /tiles/Z/X/Y.png, where zoom level Z
+ * splits the square around the whole pattern into 2^Z by 2^Z tiles and
+ * X and Y count tiles from the top left. The pattern is chosen by the
+ * query parameters depth, ratio, angle (in degrees), cactus, pear and
+ * background (RGB in hexadecimal); missing parameters take the
+ * BatchRenderer's defaults. Ratios and angles outside the ranges the Gui
+ * offers are answered with 400, like depths beyond MAX_DEPTH.
+ *
+ * Encoded tiles are kept in a TileCache bounded in bytes. Tiles that are
+ * not cached are rendered on a bounded pool of render threads; requests
+ * for a tile that is already being rendered wait for that render instead
+ * of starting another, and requests that find the pool's queue full are
+ * answered with 503 rather than queued without bound. A request whose
+ * render times out is answered with 503 as well, but the render is not
+ * cancelled: other requests may be waiting for it, and it still fills
+ * the cache for the retry. /stats reports the request and cache
+ * counters as plain text.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class TileServer {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Command line usage of the tile server */
+    public static final String USAGE = String.join(System.lineSeparator(),
+        "usage: java fractalgen.Main --serve [options]",
+        "  --port N                     port to listen on (default 8080)",
+        "  --threads N                  render threads (default: processors)",
+        "  --cache-mb N                 tile cache size in MiB (default 64)",
+        "  --tile N                     tile width and height (default 256)");
+    /** Largest zoom level served */
+    public static final int MAX_ZOOM = 24;
+    /** Number of renders that may wait for a render thread per thread */
+    private static final int QUEUED_RENDERS_PER_THREAD = 16;
+    /** Number of threads handling HTTP exchanges */
+    private static final int HANDLER_THREADS = 64;
+    /** Time a request waits for its tile to be rendered, in seconds */
+    private static final int RENDER_TIMEOUT_SECONDS = 30;
+    /** Cache-Control header of tiles; a tile's address fixes its pixels */
+    private static final String TILE_CACHE_CONTROL = "public, max-age=86400";
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Port to listen on */
+    private int port = 8080;
+    /** Number of render threads */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** Maximum number of bytes of cached tiles */
+    private long cacheBytes = TileCache.DEFAULT_MAX_BYTES;
+    /** Width and height of a tile in pixels */
+    private int tileSize = 256;
+    /** Generates the Circles of each tile */
+    private final FractalGenerator generator = new FractalGenerator();
+    /** Draws each tile's Circles into its image */
+    private final TileRasterizer rasterizer = new TileRasterizer();
+    /** Circles of the tile being rendered on each render thread */
+    private final ThreadLocal<CircleBuffer> circles =
+        ThreadLocal.withInitial(CircleBuffer::new);
+    /** Image each render thread renders into */
+    private final ThreadLocal<BufferedImage> images = ThreadLocal.withInitial(
+        () -> new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB));
+    /** Renders currently in progress or queued, by tile */
+    private final ConcurrentHashMap<TileKey, CompletableFuture<byte[]>> rendering =
+        new ConcurrentHashMap<TileKey, CompletableFuture<byte[]>>();
+    /** Encoded tiles; created when the server starts */
+    private TileCache<TileKey> cache;
+    /** Renders tiles; created when the server starts */
+    private ThreadPoolExecutor renderers;
+    /** Handles HTTP exchanges; created when the server starts */
+    private ExecutorService handlers;
+    /** Accepts HTTP connections; null until the server starts */
+    private HttpServer server;
+    /** Number of tile requests answered with a tile */
+    private final AtomicLong served = new AtomicLong();
+    /** Number of tiles rendered */
+    private final AtomicLong rendered = new AtomicLong();
+    /** Number of tiles streamed because they exceeded the memory budget */
+    private final AtomicLong streamed = new AtomicLong();
+    /** Number of requests that waited for another request's render */
+    private final AtomicLong deduplicated = new AtomicLong();
+    /** Number of requests refused because the render queue was full */
+    private final AtomicLong rejected = new AtomicLong();
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up a tile server from command line arguments.
+     * Throws IllegalArgumentException if an argument is not understood.
+     *
+     * @param   args    command line arguments, as described by USAGE
+     */
+    public TileServer(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--serve")) {
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("threads: " + value);
+                    }
+                    break;
+                case "--cache-mb":
+                    cacheBytes = Long.parseLong(value) << 20;
+                    if (cacheBytes < 0) {
+                        throw new IllegalArgumentException("cache-mb: " + value);
+                    }
+                    break;
+                case "--tile":
+                    tileSize = Integer.parseInt(value);
+                    if (tileSize < 1) {
+                        throw new IllegalArgumentException("tile: " + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option);
+            }
+        }
+        // every render thread may hold a tile's Circles at the same time
+        generator.setMemoryBudget(generator.getMemoryBudget() / threads);
+    }
+
+    /**
+     * Starts listening for requests. Returns once the server is accepting
+     * connections; requests are handled on the server's own threads.
+     *
+     * @throws  IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        cache = new TileCache<TileKey>(cacheBytes);
+        renderers = new ThreadPoolExecutor(threads, threads, 0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(threads * QUEUED_RENDERS_PER_THREAD),
+            daemonThreads("tile-render"));
+        handlers = Executors.newFixedThreadPool(HANDLER_THREADS,
+            daemonThreads("tile-http"));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/tiles/", this::handleTile);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(handlers);
+        server.start();
+        System.out.println("serving tiles on port " + getPort());
+    }
+
+    /**
+     * Stops accepting requests and stops the render threads
+     */
+    public void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+        renderers.shutdownNow();
+    }
+
+    /**
+     * Retrieves the port the server listens on, which is only known after
+     * it starts if port 0 was requested
+     *
+     * @return      port of the server
+     */
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    /**
+     * Answers a request for a tile with the encoded tile, from the cache
+     * if possible
+     *
+     * @param   exchange    request and response
+     * @throws  IOException if the response cannot be sent
+     */
+    private void handleTile(HttpExchange exchange) throws IOException {
+        try {
+            TileKey key;
+            try {
+                key = parseKey(exchange);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+            if (key == null) {
+                sendText(exchange, 404, "not found");
+                return;
+            }
+            byte[] png = cache.get(key);
+            if (png == null) {
+                try {
+                    png = render(key).get(RENDER_TIMEOUT_SECONDS,
+                        TimeUnit.SECONDS);
+                } catch (RejectedExecutionException e) {
+                    rejected.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendText(exchange, 503, "too many tiles being rendered");
+                    return;
+                } catch (TimeoutException e) {
+                    // the render is shared and keeps going; the tile is
+                    // cached for the retry
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendText(exchange, 503, "tile render timed out");
+                    return;
+                } catch (ExecutionException e) {
+                    sendText(exchange, 500, String.valueOf(e.getCause()));
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            served.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "image/png");
+            exchange.getResponseHeaders().set("Cache-Control",
+                TILE_CACHE_CONTROL);
+            exchange.sendResponseHeaders(200, png.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(png);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers a request for the server's counters
+     *
+     * @param   exchange    request and response
+     * @throws  IOException if the response cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            sendText(exchange, 200, String.join("\n",
+                "served " + served.get(),
+                "rendered " + rendered.get(),
+                "streamed " + streamed.get(),
+                "deduplicated " + deduplicated.get(),
+                "rejected " + rejected.get(),
+                "cache.hits " + cache.getHits(),
+                "cache.misses " + cache.getMisses(),
+                "cache.tiles " + cache.size(),
+                "cache.bytes " + cache.getByteCount(),
+                "queue " + renderers.getQueue().size(),
+                ""));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Retrieves the render of a tile, starting one only if none is in
+     * progress. The render stays registered until its tile is cached, so
+     * every request either finds the tile cached or joins its render.
+     * Throws RejectedExecutionException if the render queue is full.
+     *
+     * @param   key     tile to render
+     * @return          encoded tile, once rendered
+     */
+    private CompletableFuture<byte[]> render(TileKey key) {
+        CompletableFuture<byte[]> created = new CompletableFuture<byte[]>();
+        CompletableFuture<byte[]> existing = rendering.putIfAbsent(key, created);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            return existing;
+        }
+        // the render may have finished between the cache miss and
+        // registering this one; the miss is already counted
+        byte[] cached = cache.peek(key);
+        if (cached != null) {
+            rendering.remove(key, created);
+            created.complete(cached);
+            return created;
+        }
+        try {
+            renderers.execute(() -> {
+                try {
+                    byte[] png = renderTile(key);
+                    cache.put(key, png);
+                    created.complete(png);
+                } catch (RuntimeException e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    rendering.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rendering.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Renders a tile on the calling render thread and encodes it as PNG
+     *
+     * @param   key     tile to render
+     * @return          encoded tile
+     */
+    private byte[] renderTile(TileKey key) {
+        FractalParameters parameters = key.parameters;
+        int depth = parameters.getRecursionDepth();
+        // zoom level 0 fits the square around the whole pattern in one tile
+        double extent = 2 * Math.max(generator.getReach(parameters), 1);
+        double tileExtent = extent / (1L << key.zoom);
+        Viewport viewport = new Viewport(tileSize, tileSize,
+            -extent / 2 + (key.x + 0.5) * tileExtent,
+            -extent / 2 + (key.y + 0.5) * tileExtent,
+            tileSize / tileExtent);
+
+        BufferedImage image = images.get();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+            .getData();
+        Arrays.fill(pixels, key.background);
+        Palette palette = Palette.of(parameters);
+        if (generator.fitsMemoryBudget(parameters, viewport, depth)) {
+            CircleBuffer fractal = circles.get();
+            generator.generateFrame(depth, parameters.getRadiusRatio(),
+                parameters.getAngleIncrement(), viewport, fractal);
+            rasterizer.drawSequential(fractal, palette, image, 0, 0);
+        } else {
+            // drawn chunk by chunk, so the thread's buffer never grows to
+            // hold the whole tile
+            generator.streamData(parameters, viewport, depth, chunk ->
+                rasterizer.drawSequential(chunk, palette, image, 0, 0));
+            streamed.incrementAndGet();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rendered.incrementAndGet();
+        return png.toByteArray();
+    }
+
+    /**
+     * Parses the address and query of a tile request. Throws
+     * IllegalArgumentException if a parameter is malformed or out of
+     * range.
+     *
+     * @param   exchange    request to parse
+     * @return              requested tile; null if the path is not a tile
+     */
+    private static TileKey parseKey(HttpExchange exchange) {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        // "", "tiles", Z, X, "Y.png"
+        if (path.length != 5 || !path[4].endsWith(".png")) {
+            return null;
+        }
+        int zoom = parseInt("z", path[2]);
+        int x = parseInt("x", path[3]);
+        int y = parseInt("y", path[4].substring(0, path[4].length() - 4));
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("z: " + zoom);
+        }
+        if (x < 0 || x >= 1 << zoom || y < 0 || y >= 1 << zoom) {
+            throw new IllegalArgumentException("x, y: " + x + ", " + y);
+        }
+
+        Map<String, String> query = new HashMap<String, String>();
+        String rawQuery = exchange.getRequestURI().getQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(pair.substring(0, equals),
+                        pair.substring(equals + 1));
+                }
+            }
+        }
+        int depth = parseInt("depth", query.getOrDefault("depth", "10"));
+        if (depth < 0 || depth > FractalGenerator.MAX_DEPTH) {
+            throw new IllegalArgumentException("depth: " + depth);
+        }
+        int ratio = parseInt("ratio", query.getOrDefault("ratio", "40"));
+        if (ratio < Gui.MIN_RADIUS_RATIO || ratio > Gui.MAX_RADIUS_RATIO) {
+            throw new IllegalArgumentException("ratio: " + ratio);
+        }
+        double angle;
+        try {
+            angle = Double.parseDouble(query.getOrDefault("angle", "45"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("angle: " + query.get("angle"));
+        }
+        if (!(angle >= Gui.MIN_ANGLE && angle <= Gui.MAX_ANGLE)) {
+            throw new IllegalArgumentException("angle: " + angle);
+        }
+        Color cactus = parseColor("cactus", query.getOrDefault("cactus", "00ff00"));
+        Color pear = parseColor("pear", query.getOrDefault("pear", "ffafaf"));
+        Color background = parseColor("background",
+            query.getOrDefault("background", "ffffff"));
+        return new TileKey(new FractalParameters(depth, ratio,
+            Math.toRadians(angle), cactus, pear), background.getRGB(),
+            zoom, x, y);
+    }
+
+    /**
+     * Parses an integer request parameter. Throws IllegalArgumentException
+     * if it is not an integer.
+     *
+     * @param   name    name of the parameter
+     * @param   value   value to parse
+     * @return          parsed value
+     */
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ": " + value);
+        }
+    }
+
+    /**
+     * Parses a color request parameter written as six hexadecimal digits.
+     * Throws IllegalArgumentException if it is not a color.
+     *
+     * @param   name    name of the parameter
+     * @param   value   value to parse
+     * @return          parsed color
+     */
+    private static Color parseColor(String name, String value) {
+        try {
+            return Color.decode("#" + value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ": " + value);
+        }
+    }
+
+    /**
+     * Sends a plain text response
+     *
+     * @param   exchange    request and response
+     * @param   status      HTTP status code
+     * @param   text        body of the response
+     * @throws  IOException if the response cannot be sent
+     */
+    private static void sendText(HttpExchange exchange, int status, String text)
+        throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+            "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Creates a factory of named daemon threads
+     *
+     * @param   name    prefix of the thread names
+     * @return          thread factory
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-"
+                + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Identifies a tile by everything that determines its pixels
+     */
+    private static final class TileKey {
+        /** Parameters of the fractal pattern */
+        private final FractalParameters parameters;
+        /** Background RGB value */
+        private final int background;
+        /** Zoom level */
+        private final int zoom;
+        /** Column of the tile, from the left */
+        private final int x;
+        /** Row of the tile, from the top */
+        private final int y;
+
+        /**
+         * Constructor for TileKey class
+         *
+         * @param   parameters  parameters of the fractal pattern
+         * @param   background  background RGB value
+         * @param   zoom        zoom level
+         * @param   x           column of the tile
+         * @param   y           row of the tile
+         */
+        private TileKey(FractalParameters parameters, int background,
+            int zoom, int x, int y) {
+            this.parameters = parameters;
+            this.background = background;
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return background == other.background && zoom == other.zoom
+                && x == other.x && y == other.y
+                && parameters.equals(other.parameters);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            int result = parameters.hashCode();
+            result = 31 * result + background;
+            result = 31 * result + zoom;
+            result = 31 * result + x;
+            result = 31 * result + y;
+            return result;
+        }
+    }
+}
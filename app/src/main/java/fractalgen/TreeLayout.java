@@ -0,0 +1,135 @@
+package fractalgen;
+
+/**
+ * Sizes, distances and rotations of a fractal tree, which only depend
+ * on the level of a node
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+final class TreeLayout {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of levels in the tree */
+    int depth;
+    /** Size of the Circles on each level */
+    double[] sizes;
+    /** Distance from a Circle on each level to its children */
+    double[] hypotenuses;
+    /** 
+     * Radius around a Circle on each level that contains all of its
+     * descendants 
+     */
+    double[] reaches;
+    /** Cosine of the angle from parent to child Circles */
+    double cosIncrement;
+    /** Sine of the angle from parent to child Circles */
+    double sinIncrement;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for TreeLayout class
+     *
+     * @param   depth           number of levels in the tree
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   angleIncrement  angle from parent to child Circles
+     */
+    TreeLayout(int depth, int radiusRatio, double angleIncrement) {
+        sizes = new double[depth];
+        hypotenuses = new double[depth];
+        reaches = new double[depth];
+        update(depth, radiusRatio, angleIncrement);
+    }
+
+    /**
+     * Recomputes this layout for different parameters, reusing its
+     * arrays when they are large enough
+     *
+     * @param   depth           number of levels in the tree
+     * @param   radiusRatio     ratio of child to parent radius
+     * @param   angleIncrement  angle from parent to child Circles
+     */
+    void update(int depth, int radiusRatio, double angleIncrement) {
+        this.depth = depth;
+        if (sizes.length < depth) {
+            sizes = new double[depth];
+            hypotenuses = new double[depth];
+            reaches = new double[depth];
+        }
+        double ratio = radiusRatio / 100.0;
+        sizes[0] = FractalGenerator.ROOT_SIZE;
+        for (int level = 1; level < depth; level++) {
+            sizes[level] = sizes[level - 1] * ratio;
+            hypotenuses[level - 1] = (sizes[level - 1] + sizes[level]) / 2.0;
+        }
+        // a subtree's descendants are at most the distance to a child
+        // plus the child's own reach away, whatever the angles
+        reaches[depth - 1] = sizes[depth - 1] / 2;
+        for (int level = depth - 2; level >= 0; level--) {
+            reaches[level] = Math.max(sizes[level] / 2, 
+                hypotenuses[level] + reaches[level + 1]);
+        }
+        // children are rotated by +/- angleIncrement from their parent,
+        // so directions are carried as cosine/sine pairs
+        cosIncrement = Math.cos(angleIncrement);
+        sinIncrement = Math.sin(angleIncrement);
+    }
+
+    /**
+     * Retrieves the number of Circles in a subtree rooted on a level
+     *
+     * @param   level   level of the subtree root
+     * @return          2^(depth - level) - 1
+     */
+    int subtreeSize(int level) {
+        return (1 << (depth - level)) - 1;
+    }
+
+    /**
+     * Rotates a direction towards the left child
+     *
+     * @param   cos     cosine of the parent direction
+     * @param   sin     sine of the parent direction
+     * @return          cosine of the left child direction
+     */
+    double leftCos(double cos, double sin) {
+        return cos * cosIncrement - sin * sinIncrement;
+    }
+
+    /**
+     * Rotates a direction towards the left child
+     *
+     * @param   cos     cosine of the parent direction
+     * @param   sin     sine of the parent direction
+     * @return          sine of the left child direction
+     */
+    double leftSin(double cos, double sin) {
+        return sin * cosIncrement + cos * sinIncrement;
+    }
+
+    /**
+     * Rotates a direction towards the right child
+     *
+     * @param   cos     cosine of the parent direction
+     * @param   sin     sine of the parent direction
+     * @return          cosine of the right child direction
+     */
+    double rightCos(double cos, double sin) {
+        return cos * cosIncrement + sin * sinIncrement;
+    }
+
+    /**
+     * Rotates a direction towards the right child
+     *
+     * @param   cos     cosine of the parent direction
+     * @param   sin     sine of the parent direction
+     * @return          sine of the right child direction
+     */
+    double rightSin(double cos, double sin) {
+        return sin * cosIncrement - cos * sinIncrement;
+    }
+}
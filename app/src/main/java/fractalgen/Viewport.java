@@ -0,0 +1,189 @@
+package fractalgen;
+
+/**
+ * Immutable description of the area of a fractal pattern that is visible
+ * on screen. A Viewport maps fractal coordinates to pixels: the point
+ * (centerX, centerY) is shown in the middle of a width by height pixel
+ * area, magnified by scale.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public final class Viewport {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Subtrees narrower than this many pixels are drawn as one Circle */
+    public static final double MIN_PIXEL_SIZE = 1.0;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Width of the visible area in pixels */
+    private final int width;
+    /** Height of the visible area in pixels */
+    private final int height;
+    /** x-coordinate of the fractal point shown in the middle */
+    private final double centerX;
+    /** y-coordinate of the fractal point shown in the middle */
+    private final double centerY;
+    /** Pixels per fractal unit */
+    private final double scale;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up a Viewport showing the fractal origin in the
+     * middle at its natural size.
+     *
+     * @param   width   width of the visible area in pixels
+     * @param   height  height of the visible area in pixels
+     */
+    public Viewport(int width, int height) {
+        this(width, height, 0, 0, 1);
+    }
+
+    /**
+     * Constructor for Viewport class. Throws IllegalArgumentException if
+     * scale is not greater than 0.
+     *
+     * @param   width       width of the visible area in pixels
+     * @param   height      height of the visible area in pixels
+     * @param   centerX     x-coordinate of the fractal point shown in the
+     *                      middle
+     * @param   centerY     y-coordinate of the fractal point shown in the
+     *                      middle
+     * @param   scale       pixels per fractal unit
+     */
+    public Viewport(int width, int height, double centerX, double centerY,
+        double scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("scale: " + scale);
+        }
+        this.width = width;
+        this.height = height;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.scale = scale;
+    }
+
+    /**
+     * Retrieves the width of the visible area
+     *
+     * @return      width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Retrieves the height of the visible area
+     *
+     * @return      height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Retrieves the x-coordinate of the fractal point shown in the middle
+     *
+     * @return      x-coordinate in fractal units
+     */
+    public double getCenterX() {
+        return centerX;
+    }
+
+    /**
+     * Retrieves the y-coordinate of the fractal point shown in the middle
+     *
+     * @return      y-coordinate in fractal units
+     */
+    public double getCenterY() {
+        return centerY;
+    }
+
+    /**
+     * Retrieves the magnification of this Viewport
+     *
+     * @return      pixels per fractal unit
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Converts an x-coordinate of the fractal to a pixel column
+     *
+     * @param   x   x-coordinate in fractal units
+     * @return      x-coordinate in pixels
+     */
+    public double toPixelX(double x) {
+        return (x - centerX) * scale + width / 2;
+    }
+
+    /**
+     * Converts a y-coordinate of the fractal to a pixel row
+     *
+     * @param   y   y-coordinate in fractal units
+     * @return      y-coordinate in pixels
+     */
+    public double toPixelY(double y) {
+        return (y - centerY) * scale + height / 2;
+    }
+
+    /**
+     * Checks whether a disc given in pixels overlaps the visible area
+     *
+     * @param   pixelX      x-coordinate of the disc center in pixels
+     * @param   pixelY      y-coordinate of the disc center in pixels
+     * @param   radius      radius of the disc in pixels
+     * @return              true if any part of the disc may be visible
+     */
+    public boolean intersects(double pixelX, double pixelY, double radius) {
+        return pixelX + radius >= 0 && pixelX - radius <= width
+            && pixelY + radius >= 0 && pixelY - radius <= height;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Viewport)) {
+            return false;
+        }
+        Viewport other = (Viewport) o;
+        return width == other.width && height == other.height
+            && Double.compare(centerX, other.centerX) == 0
+            && Double.compare(centerY, other.centerY) == 0
+            && Double.compare(scale, other.scale) == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = width;
+        result = 31 * result + height;
+        result = 31 * result + Double.hashCode(centerX);
+        result = 31 * result + Double.hashCode(centerY);
+        result = 31 * result + Double.hashCode(scale);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return width + "x" + height + " at (" + centerX + ", " + centerY
+            + ") x" + scale;
+    }
+}
@@ -0,0 +1,189 @@
+package fractalgen;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Walks a fractal tree depth first with an explicit stack rather than
+ * recursion, in the same parent-before-child, left-before-right order as
+ * a recursive walk. The stack holds at most one pending sibling per level,
+ * plus the root, and is reused between walks, so a walk allocates nothing
+ * once the stack is large enough for the tree.
+ *
+ * The walk loop stays in the caller, with the top of the stack in a local
+ * variable, so the per-node work is compiled together with the walk and
+ * its state stays in registers. start pushes the root, the caller pops a
+ * node by decrementing the top and reading the arrays, and pushChildren
+ * enters the popped node's subtree; otherwise the subtree is skipped.
+ *
+ *      int top = stack.start(layout);
+ *      while (top > 0) {
+ *          top--;
+ *          int level = stack.level[top];
+ *          if (wanted(stack.x[top], stack.y[top], level)) {
+ *              top = stack.pushChildren(layout, top, stack.x[top], ...);
+ *          }
+ *      }
+ *
+ * pushChildren throws CancellationException if the calling thread is
+ * interrupted, checking at the nodes with more than UNCHECKED_LEVELS
+ * levels below them, so a walk can be cancelled within a subtree of
+ * 2^UNCHECKED_LEVELS nodes.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+final class WalkStack {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Number of levels below the deepest nodes that check interruption */
+    static final int UNCHECKED_LEVELS = 12;
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** x-coordinates of the pending nodes, in fractal units */
+    double[] x;
+    /** y-coordinates of the pending nodes, in fractal units */
+    double[] y;
+    /** Cosines of the angles from the parents to the pending nodes */
+    double[] cos;
+    /** Sines of the angles from the parents to the pending nodes */
+    double[] sin;
+    /** Levels of the pending nodes; 0 is the root */
+    int[] level;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor for WalkStack class
+     *
+     * @param   capacity    number of nodes the stack can hold
+     */
+    WalkStack(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        cos = new double[capacity];
+        sin = new double[capacity];
+        level = new int[capacity];
+    }
+
+    /**
+     * Starts a walk of a whole tree by pushing its root, discarding any
+     * walk in progress
+     *
+     * @param   layout  sizes and angles of the tree
+     * @return          top of the stack
+     */
+    int start(TreeLayout layout) {
+        return start(layout, 0, 0, Math.cos(FractalGenerator.STARTING_ANGLE),
+            Math.sin(FractalGenerator.STARTING_ANGLE), 0);
+    }
+
+    /**
+     * Starts a walk of the subtree rooted at a node by pushing the node,
+     * discarding any walk in progress
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   rootX       x-coordinate of the subtree root
+     * @param   rootY       y-coordinate of the subtree root
+     * @param   rootCos     cosine of the angle from the parent to the root
+     * @param   rootSin     sine of the angle from the parent to the root
+     * @param   rootLevel   level of the subtree root
+     * @return              top of the stack
+     */
+    int start(TreeLayout layout, double rootX, double rootY, double rootCos,
+        double rootSin, int rootLevel) {
+        ensureCapacity(layout.depth + 1);
+        x[0] = rootX;
+        y[0] = rootY;
+        cos[0] = rootCos;
+        sin[0] = rootSin;
+        level[0] = rootLevel;
+        return 1;
+    }
+
+    /**
+     * Pushes the children of a popped node, so the walk enters its
+     * subtree. Does nothing on the tree's deepest level. Throws
+     * CancellationException if the calling thread is interrupted.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   top         top of the stack
+     * @param   nodeX       x-coordinate of the node
+     * @param   nodeY       y-coordinate of the node
+     * @param   nodeCos     cosine of the angle from the parent to the node
+     * @param   nodeSin     sine of the angle from the parent to the node
+     * @param   nodeLevel   level of the node
+     * @return              top of the stack
+     */
+    int pushChildren(TreeLayout layout, int top, double nodeX, double nodeY,
+        double nodeCos, double nodeSin, int nodeLevel) {
+        if (layout.depth - nodeLevel > UNCHECKED_LEVELS 
+            && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("walk interrupted");
+        }
+        return pushChildrenUninterruptibly(layout, top, nodeX, nodeY, 
+            nodeCos, nodeSin, nodeLevel);
+    }
+
+    /**
+     * Pushes the children of a popped node, so the walk enters its
+     * subtree, without checking for interruption. Reading the interrupted
+     * status inside a walk loop keeps the JIT from hoisting the loop's
+     * field loads, so walks that are never interrupted use this instead.
+     * Does nothing on the tree's deepest level.
+     *
+     * @param   layout      sizes and angles of the tree
+     * @param   top         top of the stack
+     * @param   nodeX       x-coordinate of the node
+     * @param   nodeY       y-coordinate of the node
+     * @param   nodeCos     cosine of the angle from the parent to the node
+     * @param   nodeSin     sine of the angle from the parent to the node
+     * @param   nodeLevel   level of the node
+     * @return              top of the stack
+     */
+    int pushChildrenUninterruptibly(TreeLayout layout, int top, double nodeX,
+        double nodeY, double nodeCos, double nodeSin, int nodeLevel) {
+        if (nodeLevel + 1 >= layout.depth) {
+            return top;
+        }
+        double hypotenuse = layout.hypotenuses[nodeLevel];
+        // right child is pushed first so the left subtree is walked first
+        double rightCos = layout.rightCos(nodeCos, nodeSin);
+        double rightSin = layout.rightSin(nodeCos, nodeSin);
+        x[top] = nodeX - rightCos * hypotenuse;
+        y[top] = nodeY - rightSin * hypotenuse;
+        cos[top] = rightCos;
+        sin[top] = rightSin;
+        level[top] = nodeLevel + 1;
+        top++;
+
+        double leftCos = layout.leftCos(nodeCos, nodeSin);
+        double leftSin = layout.leftSin(nodeCos, nodeSin);
+        x[top] = nodeX - leftCos * hypotenuse;
+        y[top] = nodeY - leftSin * hypotenuse;
+        cos[top] = leftCos;
+        sin[top] = leftSin;
+        level[top] = nodeLevel + 1;
+        return top + 1;
+    }
+
+    /**
+     * Grows the stack, discarding its contents, if it cannot hold a
+     * designated number of nodes
+     *
+     * @param   capacity    number of nodes the stack must hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (x.length < capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+            cos = new double[capacity];
+            sin = new double[capacity];
+            level = new int[capacity];
+        }
+    }
+}
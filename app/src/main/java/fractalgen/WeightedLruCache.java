@@ -0,0 +1,159 @@
+package fractalgen;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded, least-recently-used cache whose bound is a total weight rather
+ * than a number of entries. A weigher gives the weight of each value, such
+ * as its number of Circles, bytes or pixels. The most recently used entry
+ * is always kept, even if it alone exceeds the bound.
+ *
+ * @param   <K>     key identifying a cached value
+ * @param   <V>     cached value
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class WeightedLruCache<K, V> {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Cached values, ordered from least to most recently used */
+    private final LinkedHashMap<K, V> entries;
+    /** Gives the weight of a value; must not change while it is cached */
+    private final ToLongFunction<? super V> weigher;
+    /** Maximum weight held across all cached values */
+    private final long maxWeight;
+    /** Weight currently held across all cached values */
+    private long weight;
+    /** Number of lookups that found a cached value */
+    private long hits;
+    /** Number of lookups that did not find a cached value */
+    private long misses;
+
+    //----------------------------------------------------------------
+    //      CONSTRUCTORS
+    //----------------------------------------------------------------
+    /**
+     * Constructor; sets up an empty cache bounded by a designated weight.
+     * Throws IllegalArgumentException if maxWeight is smaller than 0.
+     *
+     * @param   maxWeight   maximum weight of the cached values
+     * @param   weigher     gives the weight of a value
+     */
+    public WeightedLruCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        // access order so that iteration starts at the least recently used
+        entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+    }
+
+    /**
+     * Retrieves the value cached for the given key, marking it as most
+     * recently used, and counts the lookup as a hit or a miss.
+     *
+     * @param   key     key of the value
+     * @return          cached value; null if none is cached
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Retrieves the value cached for the given key, marking it as most
+     * recently used, without counting the lookup. Meant for checking again
+     * after a counted lookup missed.
+     *
+     * @param   key     key of the value
+     * @return          cached value; null if none is cached
+     */
+    public synchronized V peek(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores the value for the given key, evicting least recently used
+     * values until the cache is within its bound. The cache keeps the
+     * value itself, so its weight must not change afterwards.
+     *
+     * @param   key     key of the value
+     * @param   value   value to cache
+     */
+    public synchronized void put(K key, V value) {
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += weigher.applyAsLong(value);
+        evict();
+    }
+
+    /**
+     * Removes all cached values. Hit and miss counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Retrieves the number of cached values.
+     *
+     * @return      number of cached values
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retrieves the weight held across all cached values.
+     *
+     * @return      total weight of the cached values
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Retrieves the number of lookups that found a cached value.
+     *
+     * @return      number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of lookups that did not find a cached value.
+     *
+     * @return      number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Evicts least recently used values while the cache is over its
+     * bound, always keeping the most recently used value.
+     */
+    private void evict() {
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && entries.size() > 1) {
+            weight -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that an Animator stops cleanly when a frame fails and draws its
+ * frames on the background the target had when it started.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class AnimatorTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Longest wait for the animation thread, in milliseconds */
+    private static final long TIMEOUT_MILLIS = 10000;
+    /** View animated by the tests; the pattern is a dot in its middle */
+    private static final Viewport VIEW = new Viewport(40, 30, 0, -150, 0.01);
+
+    @Test
+    void stopsAndReportsAFailingFrame() throws InterruptedException {
+        FractalGenerator failing = new FractalGenerator() {
+            @Override
+            public void generateFrame(int depth, int radiusRatio,
+                double angleIncrement, Viewport viewport,
+                CircleBuffer fractal) {
+                throw new IllegalStateException("frame failed");
+            }
+        };
+        failing.setData(4, 60, Color.green, Color.PINK, 45);
+        Animator animator = new Animator(failing, new JPanel(),
+            AnimationTimeline.growAndSway());
+        AtomicReference<Throwable> reported = new AtomicReference<Throwable>();
+        Thread.UncaughtExceptionHandler previous =
+            Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> reported.set(e));
+        try {
+            animator.start(VIEW);
+            awaitTrue(() -> !animator.isRunning());
+            assertInstanceOf(IllegalStateException.class, reported.get());
+
+            // the stopped animation can be started again
+            reported.set(null);
+            animator.start(VIEW);
+            awaitTrue(() -> reported.get() != null);
+            awaitTrue(() -> !animator.isRunning());
+        } finally {
+            animator.stop();
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    @Test
+    void drawsOnTheBackgroundAtStart() throws InterruptedException {
+        FractalGenerator generator = new FractalGenerator();
+        generator.setData(4, 60, Color.green, Color.PINK, 45);
+        JPanel target = new JPanel();
+        target.setBackground(Color.red);
+        Animator animator = new Animator(generator, target,
+            AnimationTimeline.growAndSway());
+        try {
+            animator.start(VIEW);
+            awaitTrue(() -> animator.getFramesShown() > 0);
+            // a change after the start does not reach the running animation
+            target.setBackground(Color.blue);
+            long shown = animator.getFramesShown();
+            awaitTrue(() -> animator.getFramesShown() > shown + 1);
+        } finally {
+            animator.stop();
+        }
+        assertFalse(animator.isRunning());
+        BufferedImage painted = new BufferedImage(VIEW.getWidth(),
+            VIEW.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics g = painted.getGraphics();
+        animator.paintFrame(g);
+        g.dispose();
+        assertEquals(Color.red.getRGB(), painted.getRGB(0, 0));
+    }
+
+    /**
+     * Waits until a condition holds, failing the test if it does not
+     * within TIMEOUT_MILLIS
+     *
+     * @param   condition   condition to wait for
+     * @throws  InterruptedException    if interrupted while waiting
+     */
+    private static void awaitTrue(BooleanSupplier condition)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
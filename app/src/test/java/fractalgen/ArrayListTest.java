@@ -0,0 +1,176 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the bulk operations of ArrayList, including a list added to
+ * itself, and the fail-fast behavior of its iterators and spliterators.
+ * java.util.ArrayList serves as the reference.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class ArrayListTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Largest list size tried */
+    private static final int MAX_SIZE = 6;
+
+    @Test
+    void addsItselfAtEveryIndex() {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            for (int index = 0; index <= size; index++) {
+                // exact capacity forces a grow; spare capacity does not
+                for (int capacity : new int[] {size, 4 * size + 1}) {
+                    ArrayList<Integer> list = filled(size, capacity);
+                    java.util.ArrayList<Integer> expected = reference(size);
+                    list.addAll(index, list);
+                    expected.addAll(index, reference(size));
+                    assertEquals(expected, toList(list), "size " + size
+                        + " index " + index + " capacity " + capacity);
+                }
+            }
+        }
+    }
+
+    @Test
+    void addsAnotherListAtEveryIndex() {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            for (int index = 0; index <= size; index++) {
+                ArrayList<Integer> list = filled(size, size);
+                ArrayList<Integer> other = new ArrayList<Integer>();
+                other.add(-1);
+                other.add(-2);
+                java.util.ArrayList<Integer> expected = reference(size);
+                list.addAll(index, other);
+                expected.addAll(index, List.of(-1, -2));
+                assertEquals(expected, toList(list), "size " + size
+                    + " index " + index);
+                assertEquals(List.of(-1, -2), toList(other));
+            }
+        }
+    }
+
+    @Test
+    void rejectsIndicesOutsideTheList() {
+        ArrayList<Integer> list = filled(3, 3);
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> list.addAll(-1, list));
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> list.addAll(4, list));
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> list.removeRange(2, 4));
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> list.removeRange(2, 1));
+    }
+
+    @Test
+    void iteratorFailsAfterStructuralModification() {
+        List<Consumer<ArrayList<Integer>>> modifications = List.of(
+            list -> list.add(9),
+            list -> list.add(0, 9),
+            list -> list.remove(0),
+            list -> list.removeRange(0, 1),
+            list -> list.addAll(list),
+            list -> list.addAll(1, list),
+            ArrayList::clear);
+        for (Consumer<ArrayList<Integer>> modification : modifications) {
+            ArrayList<Integer> list = filled(4, 4);
+            Iterator<Integer> iterator = list.iterator();
+            iterator.next();
+            modification.accept(list);
+            assertThrows(ConcurrentModificationException.class,
+                iterator::next);
+        }
+    }
+
+    @Test
+    void iteratorAllowsItsOwnRemovalAndSet() {
+        ArrayList<Integer> list = filled(4, 4);
+        Iterator<Integer> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            int value = iterator.next();
+            if (value % 2 == 0) {
+                iterator.remove();
+            } else {
+                // replacing a value is not a structural modification
+                list.set(0, value);
+            }
+        }
+        assertEquals(List.of(3, 3), toList(list));
+    }
+
+    @Test
+    void spliteratorFailsAfterStructuralModification() {
+        ArrayList<Integer> list = filled(4, 4);
+        assertThrows(ConcurrentModificationException.class,
+            () -> list.spliterator().forEachRemaining(value -> list.add(9)));
+        ArrayList<Integer> other = filled(4, 4);
+        assertThrows(ConcurrentModificationException.class,
+            () -> other.spliterator().tryAdvance(value -> other.remove(0)));
+    }
+
+    @Test
+    void streamsEveryElementInOrder() {
+        ArrayList<Integer> list = filled(1000, 16);
+        assertEquals(reference(1000),
+            list.stream().collect(Collectors.toList()));
+        assertEquals(reference(1000),
+            list.parallelStream().collect(Collectors.toList()));
+        assertFalse(list.parallelStream().anyMatch(value -> value < 0));
+    }
+
+    /**
+     * Creates a list of the values 0 to size - 1
+     *
+     * @param   size        number of values
+     * @param   capacity    initial capacity of the list
+     * @return              filled list
+     */
+    private static ArrayList<Integer> filled(int size, int capacity) {
+        ArrayList<Integer> list = new ArrayList<Integer>(capacity);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Creates a java.util.ArrayList of the values 0 to size - 1
+     *
+     * @param   size    number of values
+     * @return          filled list
+     */
+    private static java.util.ArrayList<Integer> reference(int size) {
+        java.util.ArrayList<Integer> list = new java.util.ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Copies the values of a list into a java.util.List
+     *
+     * @param   list    list to copy
+     * @return          values of the list, in order
+     */
+    private static List<Integer> toList(ArrayList<Integer> list) {
+        List<Integer> values = new java.util.ArrayList<Integer>();
+        for (int i = 0; i < list.size(); i++) {
+            values.add(list.get(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,168 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the bounded queue of AsyncObserver: dropping the oldest pending
+ * update, coalescing with a capacity of 1, surviving a throwing Observer,
+ * retrying a rejected delivery and never running two deliveries at once.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class AsyncObserverTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Longest wait for deliveries on other threads, in seconds */
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    void dropsTheOldestPendingUpdateWhenFull() {
+        AtomicInteger delivered = new AtomicInteger();
+        Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        AsyncObserver async = new AsyncObserver(delivered::incrementAndGet,
+            tasks::add, 3);
+        for (int i = 0; i < 5; i++) {
+            async.update();
+        }
+        assertEquals(3, async.getPending());
+        assertEquals(2, async.getDropped());
+        // one delivery task is scheduled for the whole burst
+        assertEquals(1, tasks.size());
+
+        tasks.remove().run();
+        assertEquals(3, delivered.get());
+        assertEquals(0, async.getPending());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void coalescesABurstWithCapacityOne() {
+        AtomicInteger delivered = new AtomicInteger();
+        Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        AsyncObserver async = new AsyncObserver(delivered::incrementAndGet,
+            tasks::add, 1);
+        for (int i = 0; i < 10; i++) {
+            async.update();
+        }
+        tasks.remove().run();
+        assertEquals(1, delivered.get());
+        assertEquals(9, async.getDropped());
+
+        // an update after the burst is delivered on its own
+        async.update();
+        tasks.remove().run();
+        assertEquals(2, delivered.get());
+    }
+
+    @Test
+    void keepsDeliveringAfterTheObserverThrows() throws InterruptedException {
+        AtomicInteger delivered = new AtomicInteger();
+        Observer failing = () -> {
+            if (delivered.incrementAndGet() == 1) {
+                throw new IllegalStateException("first update");
+            }
+        };
+        Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        AsyncObserver async = new AsyncObserver(failing, tasks::add, 3);
+        for (int i = 0; i < 3; i++) {
+            async.update();
+        }
+
+        AtomicInteger reported = new AtomicInteger();
+        Thread thread = new Thread(tasks.remove());
+        thread.setUncaughtExceptionHandler((t, e) ->
+            reported.incrementAndGet());
+        thread.start();
+        thread.join();
+        assertEquals(3, delivered.get());
+        assertEquals(1, reported.get());
+    }
+
+    @Test
+    void keepsARejectedUpdatePending() {
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicBoolean reject = new AtomicBoolean(true);
+        Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        AsyncObserver async = new AsyncObserver(delivered::incrementAndGet,
+            task -> {
+                if (reject.get()) {
+                    throw new RejectedExecutionException();
+                }
+                tasks.add(task);
+            }, 4);
+        async.update();
+        assertEquals(1, async.getPending());
+        assertTrue(tasks.isEmpty());
+
+        reject.set(false);
+        async.update();
+        tasks.remove().run();
+        assertEquals(2, delivered.get());
+    }
+
+    @Test
+    void neverRunsTwoDeliveriesAtOnce() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        AtomicInteger delivered = new AtomicInteger();
+        Observer slow = () -> {
+            if (running.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            Thread.yield();
+            delivered.incrementAndGet();
+            running.decrementAndGet();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExecutorService updaters = Executors.newFixedThreadPool(4);
+        try {
+            AsyncObserver async = new AsyncObserver(slow, executor, 2);
+            CountDownLatch done = new CountDownLatch(4);
+            for (int i = 0; i < 4; i++) {
+                updaters.execute(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        async.update();
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            // every update is either delivered or dropped, none is lost
+            long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (delivered.get() + async.getDropped() < 40000
+                && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(40000, delivered.get() + async.getDropped());
+            assertEquals(0, async.getPending());
+            assertFalse(overlapped.get());
+        } finally {
+            updaters.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsCapacitySmallerThanOne() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AsyncObserver(() -> { }, Runnable::run, 0));
+    }
+}
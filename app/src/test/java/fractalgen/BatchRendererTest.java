@@ -0,0 +1,30 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that BatchRenderer rejects a sweep the Gui could not show while
+ * parsing its options, whichever value of a range is out of bounds.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class BatchRendererTest {
+
+    @Test
+    void rejectsRangesReachingPastTheGuiLimits() {
+        String[][] invalid = {
+            {"--ratio", "39"}, {"--ratio", "60:75:5"}, {"--ratio", "30:50"},
+            {"--angle", "29"}, {"--angle", "85:95"}, {"--angle", "20:40:10"},
+            {"--depth", "20:30:5"},
+            {"--scale", "0"}, {"--scale", "-2"}, {"--scale", "NaN"}};
+        for (String[] args : invalid) {
+            assertThrows(IllegalArgumentException.class,
+                () -> new BatchRenderer(args), String.join(" ", args));
+        }
+        new BatchRenderer(new String[] {"--ratio", "40:70:10",
+            "--angle", "30:90:15", "--scale", "0.25"});
+    }
+}
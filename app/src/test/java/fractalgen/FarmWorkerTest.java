@@ -0,0 +1,93 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the tiles a FarmWorker renders line up with the whole image,
+ * including tiles and images of odd sizes and tiles cut short at the edge.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class FarmWorkerTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Viewports of whole images, of even and odd sizes */
+    private static final Viewport[] IMAGES = {
+        new Viewport(300, 256, 0, -100, 1.5),
+        new Viewport(301, 257, 10, -120, 2),
+    };
+    /** Widths and heights of the tiles */
+    private static final int[] TILE_SIZES = {64, 37};
+    /** Largest difference in pixels between compared coordinates */
+    private static final double PIXEL_TOLERANCE = 1e-9;
+
+    @Test
+    void placesPointsLessTheTileOffset() {
+        for (Viewport whole : IMAGES) {
+            for (int tileSize : TILE_SIZES) {
+                for (int top = 0; top < whole.getHeight(); top += tileSize) {
+                    for (int left = 0; left < whole.getWidth();
+                        left += tileSize) {
+                        Viewport tile = FarmWorker.tileViewport(whole, left,
+                            top, Math.min(tileSize, whole.getWidth() - left),
+                            Math.min(tileSize, whole.getHeight() - top));
+                        for (double x = -200; x <= 200; x += 12.5) {
+                            assertEquals(whole.toPixelX(x) - left,
+                                tile.toPixelX(x), PIXEL_TOLERANCE,
+                                tile + " x " + x);
+                            assertEquals(whole.toPixelY(x) - top,
+                                tile.toPixelY(x), PIXEL_TOLERANCE,
+                                tile + " y " + x);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void stitchesTheWholeImage() {
+        FractalParameters parameters = new FractalParameters(12, 60,
+            Math.toRadians(40), Color.green, Color.PINK);
+        Palette palette = Palette.of(parameters);
+        FractalGenerator generator = new FractalGenerator();
+        TileRasterizer rasterizer = new TileRasterizer();
+        for (Viewport whole : IMAGES) {
+            BufferedImage expected = new BufferedImage(whole.getWidth(),
+                whole.getHeight(), BufferedImage.TYPE_INT_RGB);
+            rasterizer.drawSequential(generator.getData(parameters, whole, 12),
+                palette, expected, 0, 0);
+            for (int tileSize : TILE_SIZES) {
+                for (int top = 0; top < whole.getHeight(); top += tileSize) {
+                    for (int left = 0; left < whole.getWidth();
+                        left += tileSize) {
+                        int width = Math.min(tileSize, whole.getWidth() - left);
+                        int height = Math.min(tileSize,
+                            whole.getHeight() - top);
+                        Viewport viewport = FarmWorker.tileViewport(whole,
+                            left, top, width, height);
+                        BufferedImage tile = new BufferedImage(width, height,
+                            BufferedImage.TYPE_INT_RGB);
+                        rasterizer.drawSequential(generator.getData(
+                            parameters, viewport, 12), palette, tile, 0, 0);
+                        for (int y = 0; y < height; y++) {
+                            for (int x = 0; x < width; x++) {
+                                assertEquals(
+                                    expected.getRGB(left + x, top + y),
+                                    tile.getRGB(x, y), viewport + " at " + x
+                                    + "," + y);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
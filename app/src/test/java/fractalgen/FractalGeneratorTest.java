@@ -0,0 +1,305 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the Observer registry of FractalGenerator, the versioned
+ * snapshots published by setData, that generating in parallel yields the
+ * same Circles as generating on one thread, and that the estimates and
+ * streams used for patterns over the memory budget agree with getData.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class FractalGeneratorTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Recursion depth deep enough to be generated in parallel */
+    private static final int PARALLEL_DEPTH = 
+        FractalGenerator.PARALLEL_MIN_DEPTH + 2;
+    /** Number of threads calling setData at once */
+    private static final int THREADS = 4;
+    /** Number of setData calls made by each thread */
+    private static final int CALLS_PER_THREAD = 2000;
+
+    @Test
+    void notifiesEveryRegisteredObserver() {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        Observer counting = first::incrementAndGet;
+        generator.registerObserver(counting);
+        generator.registerObserver(second::incrementAndGet);
+        generator.notifyObservers();
+        assertEquals(1, first.get());
+        assertEquals(1, second.get());
+
+        generator.removeObserver(counting);
+        generator.notifyObservers();
+        assertEquals(1, first.get());
+        assertEquals(2, second.get());
+    }
+
+    @Test
+    void ignoresRemovingAnUnregisteredObserver() {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger count = new AtomicInteger();
+        generator.registerObserver(count::incrementAndGet);
+        generator.removeObserver(() -> { });
+        generator.removeObserver(() -> { });
+        generator.notifyObservers();
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    void removesAnAsyncObserverThroughItsDelegate() {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger count = new AtomicInteger();
+        Observer counting = count::incrementAndGet;
+        Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        AsyncObserver async = generator.registerObserver(counting, tasks::add,
+            1);
+        assertEquals(counting, async.getDelegate());
+        generator.notifyObservers();
+        tasks.remove().run();
+        assertEquals(1, count.get());
+
+        generator.removeObserver(counting);
+        generator.notifyObservers();
+        assertEquals(0, tasks.size());
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    void appliesChangesMadeWhileNotifyingFromTheNextNotification() {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger added = new AtomicInteger();
+        Observer late = added::incrementAndGet;
+        Observer[] self = new Observer[1];
+        self[0] = () -> {
+            generator.removeObserver(self[0]);
+            generator.registerObserver(late);
+        };
+        generator.registerObserver(self[0]);
+        generator.notifyObservers();
+        assertEquals(0, added.get());
+
+        generator.notifyObservers();
+        assertEquals(1, added.get());
+    }
+
+    @Test
+    void notifiesOncePerDistinctSnapshot() {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger notified = new AtomicInteger();
+        generator.registerObserver(notified::incrementAndGet);
+        int[] depths = {3, 3, 4, 4, 4, 3};
+        for (int depth : depths) {
+            generator.setData(depth, 60, Color.green, Color.PINK, 45);
+        }
+        assertEquals(3, notified.get());
+        assertEquals(3, generator.getParameters().getVersion());
+
+        // an identical call publishes nothing
+        generator.setData(3, 60, Color.green, Color.PINK, 45);
+        assertEquals(3, notified.get());
+        assertEquals(3, generator.getParameters().getVersion());
+
+        // a change of color alone is a new snapshot
+        generator.setData(3, 60, Color.green, Color.white, 45);
+        assertEquals(4, notified.get());
+    }
+
+    @Test
+    void publishesIncreasingVersionsUnderContention() throws Exception {
+        FractalGenerator generator = new FractalGenerator();
+        AtomicInteger notified = new AtomicInteger();
+        generator.registerObserver(notified::incrementAndGet);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] callers = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                callers[t] = executor.submit(() -> {
+                    start.await();
+                    long last = 0;
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        // every thread flips between the same two depths,
+                        // so many calls repeat the current snapshot
+                        generator.setData(3 + i % 2, 60, Color.green, 
+                            Color.PINK, 45);
+                        long version = generator.getParameters().getVersion();
+                        assertTrue(version >= last, version + " < " + last);
+                        last = version;
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> caller : callers) {
+                caller.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // each published snapshot took the next version and notified once
+        assertEquals(notified.get(), generator.getParameters().getVersion());
+        assertTrue(notified.get() <= THREADS * CALLS_PER_THREAD);
+    }
+
+    @Test
+    void generatesTheSameFullTreeInParallel() {
+        // the surefire configuration gives the common pool several workers
+        assertTrue(ForkJoinPool.getCommonPoolParallelism() > 1);
+        FractalGenerator sequential = new FractalGenerator();
+        sequential.setSplitDepth(0);
+        FractalGenerator parallel = new FractalGenerator();
+        for (FractalGenerator generator : new FractalGenerator[] {
+            sequential, parallel}) {
+            generator.setData(PARALLEL_DEPTH, 60, Color.green, Color.PINK, 45);
+        }
+        CircleBuffer expected = sequential.getData();
+        assertEquals((1 << PARALLEL_DEPTH) - 1, expected.size());
+        assertSameCircles(expected, parallel.getData());
+    }
+
+    @Test
+    void generatesTheSameVisibleTreeInParallel() {
+        assertTrue(ForkJoinPool.getCommonPoolParallelism() > 1);
+        FractalParameters parameters = new FractalParameters(PARALLEL_DEPTH,
+            70, Math.toRadians(40), Color.green, Color.PINK);
+        // the whole pattern, and a corner of it that leaves some of the
+        // subtrees at the split depth outside
+        Viewport[] viewports = {
+            new Viewport(800, 600, 0, -150, 1),
+            new Viewport(640, 480, 80, 120, 40)};
+        for (Viewport viewport : viewports) {
+            FractalGenerator sequential = new FractalGenerator();
+            sequential.setSplitDepth(0);
+            FractalGenerator parallel = new FractalGenerator();
+            // enough levels are visible for the walk to be split
+            assertTrue(parallel.estimateCircles(parameters, viewport, 
+                PARALLEL_DEPTH) >= (1L << FractalGenerator.PARALLEL_MIN_DEPTH)
+                - 1);
+            CircleBuffer expected = sequential.getData(parameters, viewport,
+                PARALLEL_DEPTH);
+            assertTrue(expected.size() > 0);
+            assertSameCircles(expected, parallel.getData(parameters, viewport,
+                PARALLEL_DEPTH));
+        }
+    }
+
+    @Test
+    void estimateBoundsTheGeneratedCircles() {
+        FractalGenerator generator = new FractalGenerator();
+        FractalParameters parameters = new FractalParameters(PARALLEL_DEPTH,
+            60, Math.toRadians(45), Color.green, Color.PINK);
+        Viewport[] viewports = {
+            new Viewport(800, 600, 0, -150, 1),
+            new Viewport(800, 600, 0, -150, 0.05),
+            new Viewport(640, 480, 80, 120, 40),
+            new Viewport(300, 300, 5000, 5000, 1)};
+        for (Viewport viewport : viewports) {
+            for (int levels : new int[] {1, 8, PARALLEL_DEPTH}) {
+                long estimate = generator.estimateCircles(parameters,
+                    viewport, levels);
+                int size = generator.getData(parameters, viewport, levels)
+                    .size();
+                assertTrue(size <= estimate, viewport + " levels " + levels
+                    + ": " + size + " > " + estimate);
+            }
+        }
+        // without a Viewport the estimate is the whole tree
+        generator.setData(PARALLEL_DEPTH, 60, Color.green, Color.PINK, 45);
+        assertEquals(generator.getData().size(), generator.estimateCircles(
+            generator.getParameters(), null, PARALLEL_DEPTH));
+    }
+
+    @Test
+    void streamsTheSameCirclesAsGetData() {
+        FractalGenerator generator = new FractalGenerator();
+        // deep enough for the whole pattern to take several chunks
+        int depth = PARALLEL_DEPTH + 2;
+        FractalParameters parameters = new FractalParameters(depth, 70,
+            Math.toRadians(40), Color.green, Color.PINK);
+        Viewport[] viewports = {
+            new Viewport(800, 600, 0, -150, 1),
+            new Viewport(640, 480, 80, 120, 40)};
+        int mostChunks = 0;
+        for (Viewport viewport : viewports) {
+            CircleBuffer expected = generator.getData(parameters, viewport,
+                depth);
+            CircleBuffer streamed = new CircleBuffer();
+            AtomicInteger chunks = new AtomicInteger();
+            int count = generator.streamData(parameters, viewport, depth, 
+                chunk -> {
+                    assertTrue(chunk.size() > 0);
+                    assertTrue(chunk.size() 
+                        <= FractalGenerator.STREAM_CHUNK_CIRCLES);
+                    chunks.incrementAndGet();
+                    streamed.append(chunk, 0, chunk.size());
+                });
+            assertEquals(expected.size(), count);
+            assertSameCircles(expected, streamed);
+            mostChunks = Math.max(mostChunks, chunks.get());
+        }
+        assertTrue(mostChunks > 1);
+    }
+
+    @Test
+    void streamsPatternsOverTheMemoryBudget() {
+        FractalGenerator generator = new FractalGenerator();
+        FractalParameters parameters = new FractalParameters(PARALLEL_DEPTH,
+            60, Math.toRadians(45), Color.green, Color.PINK);
+        Viewport viewport = new Viewport(800, 600, 0, -150, 2);
+        long estimate = generator.estimateBytes(parameters, viewport, 
+            PARALLEL_DEPTH);
+        generator.setMemoryBudget(estimate / 2);
+        assertFalse(generator.fitsMemoryBudget(parameters, viewport,
+            PARALLEL_DEPTH));
+        CircleBuffer streamed = new CircleBuffer();
+        int count = generator.streamData(parameters, viewport, PARALLEL_DEPTH,
+            chunk -> streamed.append(chunk, 0, chunk.size()));
+        assertTrue(count * (long) FractalGenerator.FOOTPRINT_PER_CIRCLE 
+            <= estimate);
+        // nothing was cached while streaming
+        assertEquals(0, generator.getCacheMisses());
+        assertSameCircles(generator.getData(parameters, viewport, 
+            PARALLEL_DEPTH), streamed);
+    }
+
+    /**
+     * Asserts that two buffers hold the same Circles in the same order
+     *
+     * @param   expected    Circles generated on one thread
+     * @param   actual      Circles generated in parallel
+     */
+    private static void assertSameCircles(CircleBuffer expected, 
+        CircleBuffer actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i), "x of " + i);
+            assertEquals(expected.getY(i), actual.getY(i), "y of " + i);
+            assertEquals(expected.getSize(i), actual.getSize(i), 
+                "size of " + i);
+            assertEquals(expected.getLevel(i), actual.getLevel(i), 
+                "level of " + i);
+        }
+    }
+}
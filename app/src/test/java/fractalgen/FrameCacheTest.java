@@ -0,0 +1,145 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the cover Viewports of FrameCache, the offsets that place their
+ * Circles in each viewer's frame, and the hand-over of claimed frames to
+ * waiting workers.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class FrameCacheTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Largest difference between pixel coordinates considered equal */
+    private static final double PIXEL_TOLERANCE = 1e-9;
+
+    @Test
+    void coversOnlyViewersWithTheSameView() {
+        FrameCache frames = new FrameCache();
+        Object small = new Object();
+        Object wide = new Object();
+        Object elsewhere = new Object();
+        Viewport smallView = new Viewport(300, 200, 5, -20, 2);
+        frames.cover(wide, new Viewport(500, 100, 5, -20, 2));
+        frames.cover(elsewhere, new Viewport(900, 900, 6, -20, 2));
+        frames.cover(elsewhere, new Viewport(900, 900, 5, -20, 3));
+
+        Viewport cover = frames.cover(small, smallView);
+        assertEquals(new Viewport(500, 200, 5, -20, 2), cover);
+        // a viewer showing another view is not enlarged by the others
+        Viewport other = new Viewport(900, 900, 5, -20, 3);
+        assertSame(other, frames.cover(elsewhere, other));
+
+        frames.removeViewer(wide);
+        assertSame(smallView, frames.cover(small, smallView));
+    }
+
+    @Test
+    void offsetsCoverPixelsOntoTheViewer() {
+        int[] sizes = {200, 201, 301, 302};
+        for (int viewWidth : sizes) {
+            for (int viewHeight : sizes) {
+                Viewport viewport = new Viewport(viewWidth, viewHeight,
+                    12.5, -7.25, 3);
+                for (int coverWidth : sizes) {
+                    for (int coverHeight : sizes) {
+                        Viewport cover = new Viewport(
+                            Math.max(viewWidth, coverWidth),
+                            Math.max(viewHeight, coverHeight), 12.5, -7.25, 3);
+                        assertOffset(cover, viewport);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void completeHandsTheFrameToWaitingWorkers() throws Exception {
+        FrameCache frames = new FrameCache();
+        FrameCache.FrameKey key = key();
+        assertNull(frames.claim(key));
+        CompletableFuture<BufferedImage> claimed = frames.claim(key);
+        assertNotNull(claimed);
+        FutureTask<BufferedImage> waiter = new FutureTask<BufferedImage>(
+            claimed::get);
+        new Thread(waiter).start();
+
+        BufferedImage frame = new BufferedImage(3, 2,
+            BufferedImage.TYPE_INT_RGB);
+        frames.complete(key, frame);
+        assertSame(frame, waiter.get(10, TimeUnit.SECONDS));
+        assertSame(frame, frames.get(key));
+        // one frame awaited, one served from the cache
+        assertEquals(2, frames.getSharedFrames());
+    }
+
+    @Test
+    void abandonWakesWaitingWorkersToRenderThemselves() throws Exception {
+        FrameCache frames = new FrameCache();
+        FrameCache.FrameKey key = key();
+        assertNull(frames.claim(key));
+        CompletableFuture<BufferedImage> claimed = frames.claim(key);
+        FutureTask<BufferedImage> waiter = new FutureTask<BufferedImage>(
+            claimed::get);
+        new Thread(waiter).start();
+
+        frames.abandon(key);
+        ExecutionException woken = assertThrows(ExecutionException.class,
+            () -> waiter.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, woken.getCause());
+        assertNull(frames.get(key));
+        // the frame is free to be claimed again
+        assertNull(frames.claim(key));
+    }
+
+    /**
+     * Asserts that fractal points drawn at their pixel coordinates in a
+     * cover Viewport, moved by getOffset, land where the viewer draws them
+     *
+     * @param   cover       Viewport the Circles are generated for
+     * @param   viewport    view the viewer renders
+     */
+    private static void assertOffset(Viewport cover, Viewport viewport) {
+        int[] offset = FrameCache.getOffset(cover, viewport);
+        double[] points = {-40.125, 0, 12.5, 33.75};
+        for (double x : points) {
+            for (double y : points) {
+                String message = cover + " onto " + viewport;
+                assertEquals(viewport.toPixelX(x), cover.toPixelX(x)
+                    + offset[0], PIXEL_TOLERANCE, message);
+                assertEquals(viewport.toPixelY(y), cover.toPixelY(y)
+                    + offset[1], PIXEL_TOLERANCE, message);
+            }
+        }
+    }
+
+    /**
+     * Creates the key of a small frame
+     *
+     * @return          key of the frame
+     */
+    private static FrameCache.FrameKey key() {
+        return new FrameCache.FrameKey(new FractalParameters(4, 60,
+            Math.toRadians(45), Color.green, Color.PINK),
+            new Viewport(3, 2), false, Color.white.getRGB());
+    }
+}
@@ -0,0 +1,116 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that GeometryFile.select finds the records of a subtree from the
+ * preorder layout of the file, by comparing it with the records in file
+ * order and with the Circles FractalGenerator generates.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class GeometryFileTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Recursion depth of the saved pattern */
+    private static final int DEPTH = 10;
+    /** Largest difference in pixels between compared coordinates */
+    private static final double PIXEL_TOLERANCE = 1e-2;
+
+    /** Directory holding the saved patterns */
+    @TempDir
+    Path directory;
+
+    @Test
+    void selectsEveryRecordInFileOrder() throws IOException {
+        GeometryFile file = save(70);
+        // large enough that no subtree is culled or collapsed
+        Viewport viewport = new Viewport(20_000, 20_000, 0, 0, 10);
+        CircleBuffer selected = new CircleBuffer();
+        file.select(viewport, DEPTH, selected);
+
+        assertEquals(file.size(), selected.size());
+        for (int i = 0; i < selected.size(); i++) {
+            assertEquals(file.getLevel(i), selected.getLevel(i), "index " + i);
+            assertEquals(viewport.toPixelX(file.getX(i)), selected.getX(i),
+                PIXEL_TOLERANCE, "index " + i);
+            assertEquals(viewport.toPixelY(file.getY(i)), selected.getY(i),
+                PIXEL_TOLERANCE, "index " + i);
+        }
+    }
+
+    @Test
+    void selectsLikeTheGenerator() throws IOException {
+        Viewport[] viewports = {
+            new Viewport(600, 650),
+            new Viewport(600, 650, 0, -100, 4),
+            new Viewport(300, 200, 40, -150, 25),
+            new Viewport(300, 200, -60, -120, 60),
+        };
+        int compared = 0;
+        for (int ratio = 40; ratio <= 70; ratio += 15) {
+            GeometryFile file = save(ratio);
+            FractalParameters parameters = file.getParameters();
+            for (Viewport viewport : viewports) {
+                for (int levels = 1; levels <= DEPTH; levels += 3) {
+                    String where = "ratio " + ratio + " levels " + levels
+                        + " " + viewport;
+                    CircleBuffer expected = new FractalGenerator().getData(
+                        parameters, viewport, levels);
+                    CircleBuffer selected = new CircleBuffer();
+                    file.select(viewport, levels, selected);
+                    assertSameCircles(expected, selected, where);
+                    compared += expected.size();
+                }
+            }
+        }
+        assertTrue(compared > 0);
+    }
+
+    /**
+     * Saves a pattern of DEPTH levels and opens the saved file
+     *
+     * @param   ratio   ratio of child to parent radius
+     * @return          opened file
+     * @throws  IOException if the file cannot be written or read
+     */
+    private GeometryFile save(int ratio) throws IOException {
+        FractalParameters parameters = new FractalParameters(DEPTH, ratio,
+            Math.toRadians(40), Color.green, Color.PINK);
+        Path path = directory.resolve("pattern" + ratio + ".fgeo");
+        GeometryFile.save(new FractalGenerator(), parameters, path);
+        return GeometryFile.open(path);
+    }
+
+    /**
+     * Asserts that two buffers hold the same Circles in the same order
+     *
+     * @param   expected    Circles expected
+     * @param   actual      Circles to check
+     * @param   where       description of the compared case
+     */
+    private static void assertSameCircles(CircleBuffer expected,
+        CircleBuffer actual, String where) {
+        assertEquals(expected.size(), actual.size(), where);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getLevel(i), actual.getLevel(i),
+                where + " index " + i);
+            assertEquals(expected.getX(i), actual.getX(i), PIXEL_TOLERANCE,
+                where + " index " + i);
+            assertEquals(expected.getY(i), actual.getY(i), PIXEL_TOLERANCE,
+                where + " index " + i);
+            assertEquals(expected.getSize(i), actual.getSize(i),
+                PIXEL_TOLERANCE, where + " index " + i);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that InstancedRenderer places Circles walked at magnifications
+ * where they are far larger than an int can address.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class InstancedRendererTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Width of the drawn images */
+    private static final int WIDTH = 600;
+    /** Height of the drawn images */
+    private static final int HEIGHT = 650;
+    /** Pixels per fractal unit; the root is 5e9 pixels across */
+    private static final double HUGE_SCALE = 5e7;
+    /** Background of the drawn images, as returned by getRGB */
+    private static final int BACKGROUND = 0xff000000;
+
+    @Test
+    void fillsDiscsLargerThanAnInt() {
+        FractalParameters parameters = new FractalParameters(1, 60,
+            Math.toRadians(45), Color.green, Color.PINK);
+        int root = Palette.of(parameters).getRGB(0);
+
+        // the root centered on the image covers all of it
+        assertFilled(draw(parameters, 0), root);
+        // centered far left of the image, the root still covers it
+        assertFilled(draw(parameters, -40), root);
+        // moved further out, the root misses the image
+        assertFilled(draw(parameters, -60), BACKGROUND);
+    }
+
+    /**
+     * Draws a pattern magnified by HUGE_SCALE
+     *
+     * @param   parameters  parameters of the fractal pattern
+     * @param   centerX     x-coordinate of the fractal point shown in the
+     *                      middle
+     * @return              drawn image
+     */
+    private static BufferedImage draw(FractalParameters parameters,
+        double centerX) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+            BufferedImage.TYPE_INT_RGB);
+        new InstancedRenderer().draw(parameters, new Viewport(WIDTH, HEIGHT,
+            centerX, 0, HUGE_SCALE), Palette.of(parameters), image);
+        return image;
+    }
+
+    /**
+     * Asserts that every pixel of an image has one color
+     *
+     * @param   image   image to check
+     * @param   argb    expected color, as returned by getRGB
+     */
+    private static void assertFilled(BufferedImage image, int argb) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(argb, image.getRGB(x, y), x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the options of RenderFarm and how its Job hands out the tiles
+ * that failed on a connection.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class RenderFarmTest {
+
+    @Test
+    void rejectsValuesTheGuiCannotShow() {
+        String[][] invalid = {
+            {"--ratio", "39"}, {"--ratio", "71"},
+            {"--angle", "29.5"}, {"--angle", "91"}, {"--angle", "NaN"},
+            {"--scale", "0"}, {"--scale", "-1"}, {"--scale", "Infinity"}};
+        for (String[] args : invalid) {
+            assertThrows(IllegalArgumentException.class,
+                () -> new RenderFarm(args), String.join(" ", args));
+        }
+        new RenderFarm(new String[] {"--ratio", "70", "--angle", "30",
+            "--scale", "0.5"});
+    }
+
+    @Test
+    void leavesAFailedTileToAnotherConnection() throws Exception {
+        RenderFarm.Job job = job(new RenderFarm(new String[0]), 1);
+        job.connected.set(2);
+        RenderFarm.Tile tile = job.next();
+        job.retry(tile);
+        assertNull(job.next());
+
+        assertSame(tile, onOtherConnection(job::next));
+        assertEquals(1, job.retried.get());
+        assertEquals(0, job.failed.get());
+    }
+
+    @Test
+    void handsOutOtherTilesBeforeAFailedOne() throws Exception {
+        RenderFarm.Job job = job(new RenderFarm(new String[0]), 2);
+        job.connected.set(2);
+        RenderFarm.Tile failing = job.next();
+        job.retry(failing);
+        RenderFarm.Tile other = job.next();
+        assertNotSame(failing, other);
+        assertSame(failing, onOtherConnection(job::next));
+    }
+
+    @Test
+    void retriesOnTheOnlyConnectionUntilGivenUp() throws Exception {
+        RenderFarm.Job job = job(new RenderFarm(
+            new String[] {"--retries", "3"}), 1);
+        job.connected.set(1);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            RenderFarm.Tile tile = job.next();
+            assertNotNull(tile, "attempt " + attempt);
+            job.retry(tile);
+        }
+        assertNull(job.next());
+        assertEquals(2, job.retried.get());
+        assertEquals(1, job.failed.get());
+        assertEquals(0, job.remaining.getCount());
+    }
+
+    /**
+     * Creates a Job for an image of one-pixel tiles
+     *
+     * @param   farm    render farm the Job belongs to
+     * @param   tiles   number of tiles
+     * @return          Job with every tile pending
+     */
+    private static RenderFarm.Job job(RenderFarm farm, int tiles) {
+        BlockingQueue<RenderFarm.Tile> pending =
+            new LinkedBlockingQueue<RenderFarm.Tile>();
+        for (int i = 0; i < tiles; i++) {
+            pending.add(new RenderFarm.Tile(i, i, 0, 1, 1));
+        }
+        return farm.new Job(new FractalParameters(2, 60, Math.toRadians(45),
+            Color.green, Color.PINK), new BufferedImage(tiles, 1,
+            BufferedImage.TYPE_INT_RGB), pending);
+    }
+
+    /**
+     * Runs a call on a thread of its own, standing in for another
+     * connection, and waits for its result
+     *
+     * @param   <T>     type of the result
+     * @param   call    call to run
+     * @return          result of the call
+     * @throws  Exception   if the call throws or the wait is interrupted
+     */
+    private static <T> T onOtherConnection(Callable<T> call)
+        throws Exception {
+        FutureTask<T> task = new FutureTask<T>(call);
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that RenderWorker caches only the last pass of a frame rendered
+ * coarse to fine.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class RenderWorkerTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Longest wait for a frame to complete, in milliseconds */
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Test
+    void cachesOnlyTheFullDepthPass() throws InterruptedException {
+        int depth = RenderWorker.FIRST_PASS_LEVELS 
+            + 2 * RenderWorker.PASS_LEVELS;
+        FractalGenerator generator = new FractalGenerator();
+        generator.setData(depth, 60, Color.green, Color.PINK, 45);
+        RenderWorker worker = new RenderWorker(generator, new JPanel());
+        try {
+            worker.requestRender(new Viewport(800, 600, 0, -150, 2));
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (worker.getStatistics().getFramesCompleted() == 0
+                && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, worker.getStatistics().getFramesCompleted());
+        } finally {
+            worker.shutdown();
+        }
+        // three passes refined the frame, but one geometry was looked up
+        assertTrue(worker.getStatistics().getLastCircleCount()
+            > 1 << (RenderWorker.FIRST_PASS_LEVELS + RenderWorker.PASS_LEVELS));
+        assertEquals(1, generator.getCacheMisses());
+        assertEquals(0, generator.getCacheHits());
+    }
+}
@@ -0,0 +1,109 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the number formatting of SvgExporter. A generator that walks one
+ * Circle per level stands in for the whole tree, so every level of the
+ * deepest pattern is written without walking 2^MAX_DEPTH Circles.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class SvgExporterTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Smallest and largest radius ratios the Gui offers */
+    private static final int[] RATIOS = {40, 70};
+    /** Largest relative error of a written radius */
+    private static final double RADIUS_TOLERANCE = 1e-3;
+    /** Matches a circle element */
+    private static final Pattern CIRCLE = Pattern.compile(
+        "<circle cx=\"([-0-9.]+)\" cy=\"([-0-9.]+)\" r=\"([-0-9.]+)\"");
+
+    @Test
+    void writesEveryLevelOfTheDeepestPattern() throws IOException {
+        for (int ratio : RATIOS) {
+            for (int depth = 1; depth <= FractalGenerator.MAX_DEPTH; depth++) {
+                for (boolean grouped : new boolean[] {false, true}) {
+                    checkExport(depth, ratio, grouped);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exports a pattern with one Circle per level and checks that every
+     * coordinate and radius reads back close to the walked value
+     *
+     * @param   depth       number of levels of the pattern
+     * @param   ratio       ratio of child to parent radius
+     * @param   grouped     whether Circles of the same color share a group
+     * @throws  IOException if the document cannot be written
+     */
+    private static void checkExport(int depth, int ratio, boolean grouped)
+        throws IOException {
+        FractalParameters parameters = new FractalParameters(depth, ratio,
+            Math.toRadians(45), Color.green, Color.PINK);
+        LevelWalker generator = new LevelWalker();
+        StringWriter out = new StringWriter();
+        new SvgExporter(generator, grouped).export(parameters, out);
+
+        Matcher circle = CIRCLE.matcher(out.toString());
+        for (int level = 0; level < depth; level++) {
+            String where = "depth " + depth + " ratio " + ratio
+                + " level " + level;
+            assertTrue(circle.find(), where);
+            double[] walked = generator.circles.get(level);
+            double radius = walked[2] / 2;
+            // coordinates keep at least the precision of the radius
+            double tolerance = radius * RADIUS_TOLERANCE;
+            assertEquals(walked[0], Double.parseDouble(circle.group(1)),
+                tolerance, where);
+            assertEquals(walked[1], Double.parseDouble(circle.group(2)),
+                tolerance, where);
+            assertEquals(radius, Double.parseDouble(circle.group(3)),
+                tolerance, where);
+        }
+    }
+
+    //----------------------------------------------------------------
+    //      INTERNAL CLASSES
+    //----------------------------------------------------------------
+    /**
+     * Walks one Circle of each level, with the level's real size, instead
+     * of the whole tree
+     */
+    private static class LevelWalker extends FractalGenerator {
+        /** x, y and diameter of each walked Circle */
+        private final List<double[]> circles = new ArrayList<>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void walk(FractalParameters parameters, CircleSink sink) {
+            double size = ROOT_SIZE;
+            for (int level = 0; level < parameters.getRecursionDepth();
+                level++) {
+                double x = 123.456789 / (level + 1);
+                double y = -98.7654321 + level * size;
+                circles.add(new double[] {x, y, size});
+                sink.accept(x, y, size, level);
+                size *= parameters.getRadiusRatio() / 100.0;
+            }
+        }
+    }
+}
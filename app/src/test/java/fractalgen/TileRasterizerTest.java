@@ -0,0 +1,179 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests TileRasterizer against Java2D's Graphics.fillOval, which
+ * CircleBuffer.draw uses, and the handling of discs too large for an int.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class TileRasterizerTest {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** Width of the drawn images */
+    private static final int WIDTH = 600;
+    /** Height of the drawn images */
+    private static final int HEIGHT = 650;
+    /** Largest share of covered pixels that may differ from Java2D */
+    private static final double EDGE_TOLERANCE = 0.005;
+    /** Colors of the test discs */
+    private static final Palette PALETTE = new Palette(
+        new Color[] {Color.green, Color.PINK});
+
+    @Test
+    void matchesJava2DWithinTolerance() {
+        for (int ratio = 40; ratio <= 70; ratio += 10) {
+            FractalParameters parameters = new FractalParameters(14, ratio,
+                Math.toRadians(45), Color.green, Color.PINK);
+            CircleBuffer fractal = new FractalGenerator().getData(parameters,
+                new Viewport(WIDTH, HEIGHT), 14);
+            Palette palette = Palette.of(parameters);
+            BufferedImage expected = java2D(fractal, palette);
+            BufferedImage actual = newImage();
+            new TileRasterizer().draw(fractal, palette, actual, 0, 0);
+
+            int covered = 0;
+            int different = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if ((expected.getRGB(x, y) & 0xffffff) != 0) {
+                        covered++;
+                    }
+                    if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                        different++;
+                    }
+                }
+            }
+            assertTrue(covered > 0, "ratio " + ratio);
+            assertTrue(different <= covered * EDGE_TOLERANCE, "ratio " + ratio
+                + ": " + different + " of " + covered + " pixels differ");
+        }
+    }
+
+    @Test
+    void drawsLikeDrawSequential() {
+        FractalParameters parameters = new FractalParameters(16, 66,
+            Math.toRadians(30), Color.green, Color.PINK);
+        CircleBuffer fractal = new FractalGenerator().getData(parameters,
+            new Viewport(WIDTH, HEIGHT, 0, -80, 4), 16);
+        Palette palette = Palette.of(parameters);
+        BufferedImage tiled = newImage();
+        BufferedImage sequential = newImage();
+        new TileRasterizer(48).draw(fractal, palette, tiled, 3, -2);
+        new TileRasterizer().drawSequential(fractal, palette, sequential, 3,
+            -2);
+        assertImagesEqual(sequential, tiled);
+    }
+
+    @Test
+    void fillsDiscsLargerThanAnInt() {
+        // centered far outside the image, yet covering all of it
+        CircleBuffer fractal = new CircleBuffer();
+        fractal.add(-2e9f, HEIGHT / 2f, 5e9f, 1);
+        for (BufferedImage image : drawAllWays(fractal)) {
+            assertFilled(image, PALETTE.getRGB(1));
+        }
+
+        // the same disc moved further out misses the image
+        fractal.clear();
+        fractal.add(-4e9f, HEIGHT / 2f, 5e9f, 1);
+        for (BufferedImage image : drawAllWays(fractal)) {
+            assertFilled(image, 0xff000000);
+        }
+
+        // a huge parent covered by a small child is still drawn below it
+        fractal.clear();
+        fractal.add(WIDTH / 2f, HEIGHT / 2f, 1e12f, 0);
+        fractal.add(WIDTH / 2f, HEIGHT / 2f, 100, 1);
+        for (BufferedImage image : drawAllWays(fractal)) {
+            assertEquals(PALETTE.getRGB(0), image.getRGB(0, 0));
+            assertEquals(PALETTE.getRGB(1),
+                image.getRGB(WIDTH / 2, HEIGHT / 2));
+        }
+    }
+
+    /**
+     * Draws Circles with TileRasterizer, sequentially and tiled, and with
+     * Java2D
+     *
+     * @param   fractal     Circles to draw
+     * @return              images drawn each way
+     */
+    private static BufferedImage[] drawAllWays(CircleBuffer fractal) {
+        BufferedImage tiled = newImage();
+        new TileRasterizer().draw(fractal, PALETTE, tiled, 0, 0);
+        BufferedImage sequential = newImage();
+        new TileRasterizer().drawSequential(fractal, PALETTE, sequential, 0,
+            0);
+        return new BufferedImage[] {tiled, sequential,
+            java2D(fractal, PALETTE)};
+    }
+
+    /**
+     * Draws Circles with Java2D
+     *
+     * @param   fractal     Circles to draw
+     * @param   palette     colors of the levels of the fractal
+     * @return              drawn image
+     */
+    private static BufferedImage java2D(CircleBuffer fractal,
+        Palette palette) {
+        BufferedImage image = newImage();
+        Graphics2D g = image.createGraphics();
+        try {
+            fractal.draw(g, palette, 0, 0);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Creates a black image to draw on
+     *
+     * @return      image of type TYPE_INT_RGB
+     */
+    private static BufferedImage newImage() {
+        return new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Asserts that every pixel of an image has one color
+     *
+     * @param   image   image to check
+     * @param   argb    expected color, as returned by getRGB
+     */
+    private static void assertFilled(BufferedImage image, int argb) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(argb, image.getRGB(x, y), x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Asserts that two images have the same pixels
+     *
+     * @param   expected    image with the expected pixels
+     * @param   actual      image to check
+     */
+    private static void assertImagesEqual(BufferedImage expected,
+        BufferedImage actual) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y),
+                    x + "," + y);
+            }
+        }
+    }
+}
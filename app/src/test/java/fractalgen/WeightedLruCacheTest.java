@@ -0,0 +1,69 @@
+package fractalgen;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the weight bound, eviction order and counters of WeightedLruCache.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+class WeightedLruCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedByWeight() {
+        WeightedLruCache<String, int[]> cache =
+            new WeightedLruCache<String, int[]>(10, values -> values.length);
+        cache.put("a", new int[4]);
+        cache.put("b", new int[4]);
+        cache.get("a");
+        cache.put("c", new int[4]);
+
+        assertNull(cache.peek("b"));
+        assertEquals(4, cache.peek("a").length);
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getWeight());
+    }
+
+    @Test
+    void keepsTheMostRecentValueOverTheBound() {
+        WeightedLruCache<String, int[]> cache =
+            new WeightedLruCache<String, int[]>(10, values -> values.length);
+        cache.put("a", new int[4]);
+        cache.put("b", new int[16]);
+
+        assertNull(cache.peek("a"));
+        assertEquals(1, cache.size());
+        assertEquals(16, cache.getWeight());
+    }
+
+    @Test
+    void reweighsReplacedValues() {
+        WeightedLruCache<String, int[]> cache =
+            new WeightedLruCache<String, int[]>(10, values -> values.length);
+        cache.put("a", new int[4]);
+        int[] replacement = {1, 2};
+        cache.put("a", replacement);
+
+        assertArrayEquals(replacement, cache.peek("a"));
+        assertEquals(2, cache.getWeight());
+    }
+
+    @Test
+    void countsOnlyCountedLookups() {
+        WeightedLruCache<String, int[]> cache =
+            new WeightedLruCache<String, int[]>(10, values -> values.length);
+        cache.get("a");
+        cache.put("a", new int[1]);
+        cache.get("a");
+        cache.peek("a");
+        cache.peek("b");
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+}
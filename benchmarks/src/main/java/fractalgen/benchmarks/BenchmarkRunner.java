@@ -0,0 +1,60 @@
+package fractalgen.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Runs the benchmarks selected on the
+ * command line, which accepts the usual JMH options, with the gc profiler
+ * enabled so every result includes its allocation rate. Results are
+ * archived as JSON in a timestamped file, so runs can be compared with
+ * each other.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+public class BenchmarkRunner {
+
+    //----------------------------------------------------------------
+    //      CONSTANT DATA
+    //----------------------------------------------------------------
+    /** System property naming the directory results are archived in */
+    public static final String RESULTS_DIRECTORY_PROPERTY = "results.dir";
+    /** Directory results are archived in unless the property is set */
+    public static final String DEFAULT_RESULTS_DIRECTORY = "benchmarks/results";
+
+    /**
+     * Runs the benchmarks
+     *
+     * @param   args    JMH command line options; -h lists them
+     * @throws  Exception   if the options are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        File directory = new File(System.getProperty(
+            RESULTS_DIRECTORY_PROPERTY, DEFAULT_RESULTS_DIRECTORY));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("cannot create " + directory);
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss")
+            .format(new Date());
+        File results = new File(directory, "jmh-" + timestamp + ".json");
+
+        // options given on the command line take precedence
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(results.getPath())
+            .build();
+        new Runner(options).run();
+        System.out.println("results archived in " + results);
+    }
+}
@@ -0,0 +1,98 @@
+package fractalgen.benchmarks;
+
+import fractalgen.CircleBuffer;
+import fractalgen.FractalGenerator;
+import fractalgen.FractalParameters;
+import fractalgen.Viewport;
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generation of the fractal across depths and radius ratios. Each
+ * operation uses a fresh FractalGenerator, so the geometry cache never
+ * answers and every operation generates the whole pattern.
+ *
+ * Both benchmarks run with generation on the calling thread (split depth
+ * 0) and split across the common fork/join pool (the default split
+ * depth), so comparing the two shows how generation scales with the
+ * processors of the machine. Patterns with fewer levels, or fewer visible
+ * levels, than FractalGenerator.PARALLEL_MIN_DEPTH are always generated
+ * sequentially.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class GenerationBenchmark {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of levels of fractals to generate */
+    @Param({"8", "12", "16", "20"})
+    public int depth;
+    /** Ratio of child to parent radius */
+    @Param({"40", "60"})
+    public int ratio;
+    /** Level above which subtrees are generated in parallel */
+    @Param({"0", "6"})
+    public int splitDepth;
+    /** Parameters of the generated pattern */
+    private FractalParameters parameters;
+    /** View the visible pattern is generated for */
+    private Viewport viewport;
+
+    /**
+     * Sets up the parameters of the generated pattern
+     */
+    @Setup
+    public void setUp() {
+        parameters = new FractalParameters(depth, ratio, Math.toRadians(45),
+            Color.green, Color.PINK);
+        // a large window zoomed in on the trunk, so the deeper patterns
+        // have enough visible levels to be generated in parallel
+        viewport = new Viewport(1100, 1200, 0, -100, 3);
+    }
+
+    /**
+     * Generates every Circle of the fractal
+     *
+     * @return      generated Circles
+     */
+    @Benchmark
+    public CircleBuffer fullTree() {
+        FractalGenerator generator = new FractalGenerator();
+        generator.setSplitDepth(splitDepth);
+        generator.setData(depth, ratio, Color.green, Color.PINK, 45);
+        return generator.getData();
+    }
+
+    /**
+     * Generates the Circles of the fractal visible in a window, with
+     * subtrees narrower than a pixel collapsed
+     *
+     * @return      generated Circles
+     */
+    @Benchmark
+    public CircleBuffer visibleTree() {
+        FractalGenerator generator = new FractalGenerator();
+        generator.setSplitDepth(splitDepth);
+        return generator.getData(parameters, viewport, depth);
+    }
+}
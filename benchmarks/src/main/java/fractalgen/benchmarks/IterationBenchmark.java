@@ -0,0 +1,164 @@
+package fractalgen.benchmarks;
+
+import fractalgen.ArrayList;
+import fractalgen.CircleBuffer;
+import fractalgen.FractalGenerator;
+import java.awt.Color;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures walking a generated fractal, and filling and walking the
+ * project's ArrayList with the same number of elements, by index, by
+ * iterator and by sequential and parallel stream.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class IterationBenchmark {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of levels of the walked fractal */
+    @Param({"12", "16"})
+    public int depth;
+    /** Generated fractal to walk */
+    private CircleBuffer fractal;
+    /** List holding one element per Circle of the fractal */
+    private ArrayList<Integer> list;
+
+    /**
+     * Generates the fractal and fills the list
+     */
+    @Setup
+    public void setUp() {
+        FractalGenerator generator = new FractalGenerator();
+        generator.setData(depth, 40, Color.green, Color.PINK, 45);
+        fractal = generator.getData();
+        list = fill();
+    }
+
+    /**
+     * Reads every Circle of the fractal
+     *
+     * @return      sum of the Circle sizes
+     */
+    @Benchmark
+    public double circleBuffer() {
+        double sum = 0;
+        for (int i = 0; i < fractal.size(); i++) {
+            sum += fractal.getX(i) + fractal.getY(i) + fractal.getSize(i)
+                + fractal.getLevel(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Walks the list with its iterator
+     *
+     * @return      sum of the elements
+     */
+    @Benchmark
+    public long arrayListIterator() {
+        long sum = 0;
+        Iterator<Integer> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            sum += iterator.next();
+        }
+        return sum;
+    }
+
+    /**
+     * Walks the list by index
+     *
+     * @return      sum of the elements
+     */
+    @Benchmark
+    public long arrayListGet() {
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Fills a list from its default capacity, growing it as needed
+     *
+     * @return      filled list
+     */
+    @Benchmark
+    public ArrayList<Integer> arrayListAdd() {
+        return fill();
+    }
+
+    /**
+     * Fills a list presized to the number of Circles, 2^depth - 1
+     *
+     * @return      filled list
+     */
+    @Benchmark
+    public ArrayList<Integer> arrayListAddPresized() {
+        return fill(new ArrayList<>(fractal.size()));
+    }
+
+    /**
+     * Walks the list with a sequential stream
+     *
+     * @return      sum of the elements
+     */
+    @Benchmark
+    public long arrayListStream() {
+        return list.stream().mapToLong(Integer::longValue).sum();
+    }
+
+    /**
+     * Walks the list with a parallel stream, which splits it across cores
+     *
+     * @return      sum of the elements
+     */
+    @Benchmark
+    public long arrayListParallelStream() {
+        return list.parallelStream().mapToLong(Integer::longValue).sum();
+    }
+
+    /**
+     * Creates a list holding one element per Circle of the fractal
+     *
+     * @return      filled list
+     */
+    private ArrayList<Integer> fill() {
+        return fill(new ArrayList<>());
+    }
+
+    /**
+     * Adds one element per Circle of the fractal to a list
+     *
+     * @param   result  list to fill
+     * @return          filled list
+     */
+    private ArrayList<Integer> fill(ArrayList<Integer> result) {
+        for (int i = 0; i < fractal.size(); i++) {
+            result.add(i);
+        }
+        return result;
+    }
+}
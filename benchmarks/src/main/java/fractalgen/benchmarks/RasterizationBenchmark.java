@@ -0,0 +1,123 @@
+package fractalgen.benchmarks;
+
+import fractalgen.CircleBuffer;
+import fractalgen.FractalGenerator;
+import fractalgen.FractalParameters;
+import fractalgen.InstancedRenderer;
+import fractalgen.Palette;
+import fractalgen.TileRasterizer;
+import fractalgen.Viewport;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawing a generated fractal into an offscreen image with
+ * Java2D and with the TileRasterizer, and drawing it by instancing.
+ *
+ * @author      Joshua Scheck
+ * @version     2020-08-09
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RasterizationBenchmark {
+
+    //----------------------------------------------------------------
+    //      INSTANCE DATA
+    //----------------------------------------------------------------
+    /** Number of levels of the drawn fractal */
+    @Param({"10", "16", "24"})
+    public int depth;
+    /** Parameters of the drawn fractal */
+    private FractalParameters parameters;
+    /** View of the fractal the image shows */
+    private Viewport viewport;
+    /** Visible part of the fractal, in pixel coordinates */
+    private CircleBuffer fractal;
+    /** Colors of the levels of the fractal */
+    private Palette palette;
+    /** Image the fractal is drawn into */
+    private BufferedImage image;
+    /** Graphics drawing into the image */
+    private Graphics2D graphics;
+    /** Draws the fractal directly into the image's pixels */
+    private TileRasterizer rasterizer;
+    /** Draws the fractal by stamping subtree sprites */
+    private InstancedRenderer instancer;
+
+    /**
+     * Generates the fractal and creates the image
+     */
+    @Setup
+    public void setUp() {
+        parameters = new FractalParameters(depth, 40,
+            Math.toRadians(45), Color.green, Color.PINK);
+        viewport = new Viewport(550, 600);
+        fractal = new FractalGenerator().getData(parameters, viewport, depth);
+        palette = Palette.of(parameters);
+        image = new BufferedImage(viewport.getWidth(), viewport.getHeight(),
+            BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        rasterizer = new TileRasterizer();
+        instancer = new InstancedRenderer();
+    }
+
+    /**
+     * Releases the image's graphics
+     */
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Draws the fractal with Java2D
+     *
+     * @return      image drawn into
+     */
+    @Benchmark
+    public BufferedImage graphics() {
+        fractal.draw(graphics, palette, 0, 0);
+        return image;
+    }
+
+    /**
+     * Draws the fractal with the TileRasterizer
+     *
+     * @return      image drawn into
+     */
+    @Benchmark
+    public BufferedImage tiled() {
+        rasterizer.draw(fractal, palette, image, 0, 0);
+        return image;
+    }
+
+    /**
+     * Draws the fractal with the InstancedRenderer, whose sprites are
+     * built by the first call and reused afterwards
+     *
+     * @return      image drawn into
+     */
+    @Benchmark
+    public BufferedImage instanced() {
+        instancer.draw(parameters, viewport, palette, image);
+        return image;
+    }
+}